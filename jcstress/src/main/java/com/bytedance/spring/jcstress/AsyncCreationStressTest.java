@@ -0,0 +1,69 @@
+package com.bytedance.spring.jcstress;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 一个线程通过getBeanAsync在Executor中创建懒加载单例，另一个线程同时通过getBean同步获取同一个bean
+ * r1：两个线程拿到的是同一个对象，r2：两个线程拿到的对象都已完成注入，r3：对象被创建的次数
+ */
+@JCStressTest
+@Description("getBeanAsync racing a synchronous getBean of the same lazy singleton creates it once")
+@Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Created once, both actors see the same fully wired instance")
+@Outcome(expect = FORBIDDEN, desc = "Duplicate creation, different instances, a half-wired instance or a failed lookup")
+@State
+public class AsyncCreationStressTest {
+
+    // 所有测试状态共用，每个状态都创建线程池会耗尽线程
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "stress-async-creation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StressContext context;
+
+    private StressContext.LazyBean async;
+
+    private StressContext.LazyBean sync;
+
+    public AsyncCreationStressTest() {
+        context = StressContext.create();
+    }
+
+    @Actor
+    public void asyncActor() {
+        try {
+            async = (StressContext.LazyBean) context.getBeanAsync("lazyBean", EXECUTOR).join();
+        } catch (RuntimeException e) {
+            async = null;
+        }
+    }
+
+    @Actor
+    public void syncActor() {
+        try {
+            sync = context.getBean("lazyBean", StressContext.LazyBean.class);
+        } catch (Exception e) {
+            sync = null;
+        }
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result r) {
+        r.r1 = async != null && async == sync;
+        r.r2 = async != null && async.isWired() && sync != null && sync.isWired();
+        r.r3 = context.lazyCreations();
+    }
+}
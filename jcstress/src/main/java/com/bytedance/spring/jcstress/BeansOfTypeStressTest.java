@@ -0,0 +1,61 @@
+package com.bytedance.spring.jcstress;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import java.util.Map;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 一个线程getBeansOfType，其中包括尚未创建的懒加载bean，另一个线程同时按名称获取这个懒加载bean
+ * r1：getBeansOfType返回了全部两个bean，r2：两个线程拿到的懒加载bean是同一个对象，r3：懒加载bean被创建的次数
+ */
+@JCStressTest
+@Description("getBeansOfType and getBean race to create the same lazy singleton")
+@Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Complete result, lazy bean created once")
+@Outcome(expect = FORBIDDEN, desc = "Missing beans or the lazy bean was created twice")
+@State
+public class BeansOfTypeStressTest {
+
+    private final StressContext context;
+
+    private Map<String, StressContext.Greeter> greeters;
+
+    private Object lazyGreeter;
+
+    public BeansOfTypeStressTest() {
+        context = StressContext.create();
+    }
+
+    @Actor
+    public void actor1() {
+        try {
+            greeters = context.getBeansOfType(StressContext.Greeter.class);
+        } catch (Exception e) {
+            greeters = null;
+        }
+    }
+
+    @Actor
+    public void actor2() {
+        try {
+            lazyGreeter = context.getBean("lazyGreeter");
+        } catch (Exception e) {
+            lazyGreeter = null;
+        }
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result r) {
+        r.r1 = greeters != null && greeters.size() == 2 && greeters.get("eagerGreeter") != null;
+        r.r2 = greeters != null && lazyGreeter != null && greeters.get("lazyGreeter") == lazyGreeter;
+        r.r3 = context.lazyCreations();
+    }
+}
@@ -0,0 +1,59 @@
+package com.bytedance.spring.jcstress;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZI_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时第一次获取同一个懒加载单例
+ * r1：两个线程拿到的是同一个对象，r2：两个线程拿到的对象都已完成注入，r3：对象被创建的次数
+ */
+@JCStressTest
+@Description("Concurrent first getBean of a lazy singleton creates it once and never exposes a half-wired instance")
+@Outcome(id = "true, true, 1", expect = ACCEPTABLE, desc = "Created once, both actors see the same fully wired instance")
+@Outcome(expect = FORBIDDEN, desc = "Duplicate creation, different instances or a half-wired instance")
+@State
+public class LazySingletonStressTest {
+
+    private final StressContext context;
+
+    private StressContext.LazyBean first;
+
+    private StressContext.LazyBean second;
+
+    public LazySingletonStressTest() {
+        context = StressContext.create();
+    }
+
+    @Actor
+    public void actor1() {
+        first = getLazyBean();
+    }
+
+    @Actor
+    public void actor2() {
+        second = getLazyBean();
+    }
+
+    @Arbiter
+    public void arbiter(ZZI_Result r) {
+        r.r1 = first == second;
+        r.r2 = first != null && first.isWired() && second != null && second.isWired();
+        r.r3 = context.lazyCreations();
+    }
+
+    private StressContext.LazyBean getLazyBean() {
+        try {
+            return context.getBean("lazyBean", StressContext.LazyBean.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.bytedance.spring.jcstress;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 两个线程同时获取原型模式的bean
+ * r1、r2：各自拿到的对象已经注入了依赖，r3：两个对象不是同一个
+ */
+@JCStressTest
+@Description("Concurrent getBean of a prototype returns a new fully wired instance to each caller")
+@Outcome(id = "true, true, true", expect = ACCEPTABLE, desc = "Two distinct fully wired instances")
+@Outcome(expect = FORBIDDEN, desc = "Creation failed, instance not wired, or both actors got the same instance")
+@State
+public class PrototypeStressTest {
+
+    private final StressContext context;
+
+    private StressContext.PrototypeBean first;
+
+    private StressContext.PrototypeBean second;
+
+    public PrototypeStressTest() {
+        context = StressContext.create();
+    }
+
+    @Actor
+    public void actor1(ZZZ_Result r) {
+        first = getPrototypeBean();
+        r.r1 = first != null && first.dependency != null;
+    }
+
+    @Actor
+    public void actor2(ZZZ_Result r) {
+        second = getPrototypeBean();
+        r.r2 = second != null && second.dependency != null;
+    }
+
+    @Arbiter
+    public void arbiter(ZZZ_Result r) {
+        r.r3 = first != second;
+    }
+
+    private StressContext.PrototypeBean getPrototypeBean() {
+        try {
+            return context.getBean("prototypeBean", StressContext.PrototypeBean.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bytedance.spring.jcstress;
+
+import com.bytedance.spring.context.BeanHandle;
+import com.bytedance.spring.exception.NoSuchBeanException;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * 一个线程通过getBean创建懒加载bean，另一个线程通过BeanHandle无锁地读取一级缓存数组
+ * 读到对象时，对象通过setter注入的域、@Value的域和构造器注入的final域都必须可见
+ */
+@JCStressTest
+@Description("Injected fields of a bean published through the singleton table are visible to other threads")
+@Outcome(id = "true, true", expect = ACCEPTABLE, desc = "Both actors see a fully wired instance")
+@Outcome(expect = FORBIDDEN, desc = "An actor saw a half-wired instance")
+@State
+public class SafePublicationStressTest {
+
+    private final StressContext context;
+
+    private final BeanHandle<StressContext.LazyBean> handle;
+
+    public SafePublicationStressTest() {
+        context = StressContext.create();
+        try {
+            handle = context.getBeanHandle("lazyBean", StressContext.LazyBean.class);
+        } catch (NoSuchBeanException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Actor
+    public void writer(ZZ_Result r) {
+        try {
+            r.r1 = context.getBean("lazyBean", StressContext.LazyBean.class).isWired();
+        } catch (Exception e) {
+            r.r1 = false;
+        }
+    }
+
+    @Actor
+    public void reader(ZZ_Result r) {
+        try {
+            r.r2 = handle.get().isWired();
+        } catch (Exception e) {
+            r.r2 = false;
+        }
+    }
+}
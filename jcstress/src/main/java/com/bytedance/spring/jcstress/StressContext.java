@@ -0,0 +1,138 @@
+package com.bytedance.spring.jcstress;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import com.bytedance.spring.ioc.bean.InjectionPoint;
+import com.bytedance.spring.ioc.tools.FieldAccessors;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * jcstress测试使用的容器，每个测试状态都需要一个新的容器，所以不扫描包，
+ * 而是和构建时生成的代码一样直接传入BeanDefinition，创建一个容器只需要几微秒
+ */
+public class StressContext extends DefaultApplicationContext {
+
+    static {
+        // 每次创建容器都会打印启动日志，测试时只保留警告
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+
+    private StressContext() throws Exception {
+        super(null, beanDefinitions());
+    }
+
+    /**
+     * jcstress生成的代码不允许测试的构造器和@Arbiter方法抛出受检异常
+     * @return
+     */
+    public static StressContext create() {
+        try {
+            final StressContext context = new StressContext();
+            context.start();
+            return context;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 懒加载bean被创建的次数
+     * @return
+     */
+    public int lazyCreations() {
+        try {
+            return getBean(Dependency.class).lazyCreations.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<BeanDefinition> beanDefinitions() {
+        final List<BeanDefinition> beanDefinitions = new ArrayList<>();
+        BeanDefinition beanDefinition;
+
+        beanDefinition = new BeanDefinition("dependency", Dependency.class, false, true);
+        beanDefinition.setInstantiator(args -> new Dependency());
+        beanDefinitions.add(beanDefinition);
+
+        beanDefinition = new BeanDefinition("lazyBean", LazyBean.class, true, true);
+        beanDefinition.setInstantiator(args -> new LazyBean((Dependency) args[0]));
+        beanDefinition.setConstructorArguments(new InjectionPoint[]{
+                new InjectionPoint(Dependency.class, null, null, "LazyBean(Dependency)"),
+        });
+        beanDefinition.setFieldInjectionPoints(new InjectionPoint[]{
+                new InjectionPoint(InjectionPoint.Kind.BEAN, null, FieldAccessors.of(b -> ((LazyBean) b).fieldDependency, (b, v) -> ((LazyBean) b).fieldDependency = (Dependency) v),
+                        Dependency.class, Dependency.class, null, null, "LazyBean.fieldDependency"),
+                new InjectionPoint(InjectionPoint.Kind.BEAN, null, FieldAccessors.of(b -> ((LazyBean) b).value, (b, v) -> ((LazyBean) b).value = (int) v),
+                        int.class, int.class, null, "42", "LazyBean.value"),
+        });
+        beanDefinitions.add(beanDefinition);
+
+        beanDefinition = new BeanDefinition("prototypeBean", PrototypeBean.class, false, false);
+        beanDefinition.setInstantiator(args -> new PrototypeBean());
+        beanDefinition.setFieldInjectionPoints(new InjectionPoint[]{
+                new InjectionPoint(InjectionPoint.Kind.BEAN, null, FieldAccessors.of(b -> ((PrototypeBean) b).dependency, (b, v) -> ((PrototypeBean) b).dependency = (Dependency) v),
+                        Dependency.class, Dependency.class, null, null, "PrototypeBean.dependency"),
+        });
+        beanDefinitions.add(beanDefinition);
+
+        beanDefinition = new BeanDefinition("eagerGreeter", EagerGreeter.class, false, true);
+        beanDefinition.setInstantiator(args -> new EagerGreeter());
+        beanDefinitions.add(beanDefinition);
+
+        beanDefinition = new BeanDefinition("lazyGreeter", LazyGreeter.class, true, true);
+        beanDefinition.setInstantiator(args -> new LazyGreeter((Dependency) args[0]));
+        beanDefinition.setConstructorArguments(new InjectionPoint[]{
+                new InjectionPoint(Dependency.class, null, null, "LazyGreeter(Dependency)"),
+        });
+        beanDefinitions.add(beanDefinition);
+        return beanDefinitions;
+    }
+
+    /**
+     * 非懒加载的单例，记录懒加载bean被创建的次数
+     */
+    public static class Dependency {
+        public final AtomicInteger lazyCreations = new AtomicInteger();
+    }
+
+    public static class LazyBean {
+        public final Dependency constructorDependency;
+        public Dependency fieldDependency;
+        public int value;
+
+        public LazyBean(Dependency dependency) {
+            this.constructorDependency = dependency;
+            dependency.lazyCreations.incrementAndGet();
+        }
+
+        /**
+         * 所有注入是否都已完成
+         */
+        public boolean isWired() {
+            return constructorDependency != null && fieldDependency == constructorDependency && value == 42;
+        }
+    }
+
+    public static class PrototypeBean {
+        public Dependency dependency;
+    }
+
+    public interface Greeter {
+    }
+
+    public static class EagerGreeter implements Greeter {
+    }
+
+    public static class LazyGreeter implements Greeter {
+        public LazyGreeter(Dependency dependency) {
+            dependency.lazyCreations.incrementAndGet();
+        }
+    }
+}
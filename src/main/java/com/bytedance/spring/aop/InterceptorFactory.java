@@ -0,0 +1,18 @@
+package com.bytedance.spring.aop;
+
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+
+import java.lang.reflect.Method;
+
+/**
+ * 根据方法上的注解为bean的方法生成拦截器，例如@Cacheable
+ */
+public interface InterceptorFactory {
+
+    /**
+     * @param beanDefinition 方法所属的bean
+     * @param method bean的类中的public方法，注解在此方法上查找
+     * @return 此方法不需要拦截时返回null
+     */
+    MethodInterceptor getInterceptor(BeanDefinition beanDefinition, Method method);
+}
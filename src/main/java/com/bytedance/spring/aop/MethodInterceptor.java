@@ -0,0 +1,9 @@
+package com.bytedance.spring.aop;
+
+/**
+ * 方法拦截器，一个拦截器对应一个bean的一个方法，在创建代理时由InterceptorFactory生成
+ */
+public interface MethodInterceptor {
+
+    Object invoke(MethodInvocation invocation) throws Throwable;
+}
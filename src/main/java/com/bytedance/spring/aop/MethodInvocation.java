@@ -0,0 +1,29 @@
+package com.bytedance.spring.aop;
+
+import java.lang.reflect.Method;
+
+/**
+ * 一次被拦截的方法调用，拦截器通过proceed()调用下一个拦截器，最后一个拦截器之后调用目标对象的方法
+ */
+public interface MethodInvocation {
+
+    /**
+     * 代理对象上被调用的接口方法
+     * @return
+     */
+    Method getMethod();
+
+    /**
+     * 调用参数，没有参数时为空数组
+     * @return
+     */
+    Object[] getArguments();
+
+    /**
+     * 被代理的目标对象
+     * @return
+     */
+    Object getTarget();
+
+    Object proceed() throws Throwable;
+}
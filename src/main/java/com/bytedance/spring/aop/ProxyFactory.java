@@ -0,0 +1,350 @@
+package com.bytedance.spring.aop;
+
+import com.bytedance.spring.aop.annotation.Async;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * 为一个bean创建JDK动态代理，每个方法的拦截器链在创建ProxyFactory时一次性解析好，之后每个对象只需要创建Proxy
+ * JDK动态代理只能代理接口，不在接口中的方法无法被拦截，代理对象也只能按接口类型注入和获取
+ */
+public class ProxyFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProxyFactory.class);
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final ClassLoader classLoader;
+
+    private final Class<?>[] interfaces;
+
+    // 所有接口方法到拦截器链和目标方法的映射，不需要拦截的方法拦截器链为空，同样通过MethodHandle直接调用目标对象
+    private final Map<Method, InterceptedMethod> interceptedMethods;
+
+    private ProxyFactory(ClassLoader classLoader, Class<?>[] interfaces, Map<Method, InterceptedMethod> interceptedMethods) {
+        this.classLoader = classLoader;
+        this.interfaces = interfaces;
+        this.interceptedMethods = interceptedMethods;
+    }
+
+    /**
+     * 解析bean的每个public方法需要的拦截器
+     * @param beanDefinition
+     * @param factories
+     * @return 没有需要拦截的方法时返回null
+     */
+    public static ProxyFactory create(BeanDefinition beanDefinition, List<InterceptorFactory> factories) throws IllegalAccessException {
+        final Class<?> beanClass = beanDefinition.getBeanClass();
+        final Class<?>[] interfaces = interfacesOf(beanClass);
+        final Map<Method, InterceptedMethod> interceptedMethods = new HashMap<>();
+        boolean intercepted = false;
+        for (Method method : beanClass.getMethods()) {
+            if (method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+            final List<MethodInterceptor> chain = new ArrayList<>();
+            for (InterceptorFactory factory : factories) {
+                final MethodInterceptor interceptor = factory.getInterceptor(beanDefinition, method);
+                if (interceptor != null) {
+                    chain.add(interceptor);
+                }
+            }
+            if (chain.isEmpty()) {
+                continue;
+            }
+            final MethodInterceptor[] interceptors = chain.toArray(new MethodInterceptor[0]);
+            boolean declared = false;
+            for (Class<?> anInterface : interfaces) {
+                for (Method interfaceMethod : anInterface.getMethods()) {
+                    if (interfaceMethod.getName().equals(method.getName())
+                            && Arrays.equals(interfaceMethod.getParameterTypes(), method.getParameterTypes())) {
+                        interceptedMethods.put(interfaceMethod, new InterceptedMethod(invoker(interfaceMethod), interceptors));
+                        declared = intercepted = true;
+                    }
+                }
+            }
+            if (!declared) {
+                logger.warn("{}.{}不是接口中的方法，无法通过JDK动态代理拦截", beanClass.getName(), method.getName());
+            }
+        }
+        if (!intercepted) {
+            return null;
+        }
+        final MethodInterceptor[] none = new MethodInterceptor[0];
+        for (Class<?> anInterface : interfaces) {
+            for (Method interfaceMethod : anInterface.getMethods()) {
+                if (!interceptedMethods.containsKey(interfaceMethod)) {
+                    interceptedMethods.put(interfaceMethod, new InterceptedMethod(invoker(interfaceMethod), none));
+                }
+            }
+        }
+        return new ProxyFactory(beanClass.getClassLoader(), interfaces, interceptedMethods);
+    }
+
+    /**
+     * 为目标对象创建代理，需要拦截的方法经过拦截器链，其它方法直接调用目标对象
+     * @param target
+     * @return
+     */
+    public Object getProxy(Object target) {
+        return Proxy.newProxyInstance(classLoader, interfaces, new Handler(target));
+    }
+
+    public Class<?>[] getInterfaces() {
+        return interfaces.clone();
+    }
+
+    /**
+     * 创建作用域代理：实现bean的所有接口，每次调用都通过targetSource重新获取目标对象，调用结束后释放，
+     * 目标对象被容器释放、重新创建后，持有代理的一方不需要感知
+     * 每个接口方法的MethodHandle在创建代理时一次性解析好，调用时不需要反射
+     * @param beanDefinition
+     * @param targetSource
+     * @return
+     */
+    public static Object scopedProxy(BeanDefinition beanDefinition, Callable<? extends ScopedTarget> targetSource) throws IllegalAccessException {
+        final Class<?> beanClass = beanDefinition.getBeanClass();
+        final Class<?>[] interfaces = interfacesOf(beanClass);
+        final Map<Method, MethodHandle> invokers = new HashMap<>();
+        for (Class<?> anInterface : interfaces) {
+            for (Method method : anInterface.getMethods()) {
+                invokers.put(method, invoker(method));
+            }
+        }
+        return Proxy.newProxyInstance(beanClass.getClassLoader(), interfaces, (proxy, method, args) -> {
+            if (isEquals(method)) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                return System.identityHashCode(proxy);
+            }
+            final MethodHandle invoker = invokers.get(method);
+            final ScopedTarget target = targetSource.call();
+            try {
+                if (invoker == null) {      //Object类的toString
+                    return target.getObject().toString();
+                }
+                return (Object) invoker.invokeExact(target.getObject(), args);
+            } finally {
+                target.release();
+            }
+        });
+    }
+
+    /**
+     * 取出由ProxyFactory创建的代理对象背后的目标对象，不是这样的代理对象时原样返回
+     * @param object
+     * @return
+     */
+    public static Object targetOf(Object object) {
+        if (object != null && Proxy.isProxyClass(object.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(object);
+            if (handler instanceof Handler) {
+                return ((Handler) handler).target;
+            }
+        }
+        return object;
+    }
+
+    /**
+     * 方法的名称，用于缓存、统计等按方法区分的场景：beanName.方法名，重载的方法再加上参数类型
+     * @param beanDefinition
+     * @param method
+     * @return
+     */
+    public static String methodName(BeanDefinition beanDefinition, Method method) {
+        final StringBuilder name = new StringBuilder(beanDefinition.getBeanName()).append('.').append(method.getName());
+        int overloads = 0;
+        for (Method m : method.getDeclaringClass().getMethods()) {
+            if (m.getName().equals(method.getName())) {
+                overloads++;
+            }
+        }
+        if (overloads > 1) {
+            name.append('(');
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                name.append(i == 0 ? "" : ",").append(parameterTypes[i].getSimpleName());
+            }
+            name.append(')');
+        }
+        return name.toString();
+    }
+
+    /**
+     * 方法是否声明在bean实现的某个接口中，只有这样的方法能被JDK动态代理拦截
+     * @param beanClass
+     * @param method
+     * @return
+     */
+    public static boolean isInterfaceMethod(Class<?> beanClass, Method method) {
+        for (Class<?> anInterface : interfacesOf(beanClass)) {
+            try {
+                anInterface.getMethod(method.getName(), method.getParameterTypes());
+                return true;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 类或者public方法上是否有AOP注解（com.bytedance.spring.aop.annotation包中的注解），构建时据此预先排除不需要代理的bean
+     * 按包统计耗时（summer.metrics.timed-packages）取决于运行时的配置，不在此判断
+     * @param beanClass
+     * @return
+     */
+    public static boolean hasInterceptorAnnotations(Class<?> beanClass) {
+        if (hasInterceptorAnnotation(beanClass.getAnnotations())) {
+            return true;
+        }
+        for (Method method : beanClass.getMethods()) {
+            if (method.getDeclaringClass() != Object.class && hasInterceptorAnnotation(method.getAnnotations())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasInterceptorAnnotation(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType().getPackage() == Async.class.getPackage()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Class<?>[] interfacesOf(Class<?> beanClass) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        if (beanClass.isInterface()) {      //@Bean方法的返回值可能就是接口
+            interfaces.add(beanClass);
+        }
+        for (Class<?> c = beanClass; c != null; c = c.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(c.getInterfaces()));
+        }
+        return interfaces.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * 将接口方法转换为(Object, Object[])Object形式的MethodHandle，调用目标对象时不需要反射
+     */
+    private static MethodHandle invoker(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method)
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(INVOKER_TYPE);
+    }
+
+    private static boolean isEquals(Method method) {
+        return "equals".equals(method.getName()) && method.getParameterCount() == 1
+                && method.getParameterTypes()[0] == Object.class;
+    }
+
+    /**
+     * 作用域代理一次调用使用的目标对象，调用结束后（包括抛出异常）释放
+     */
+    public interface ScopedTarget {
+
+        Object getObject();
+
+        void release();
+    }
+
+    private static final class InterceptedMethod {
+        private final MethodHandle invoker;
+        private final MethodInterceptor[] interceptors;
+
+        InterceptedMethod(MethodHandle invoker, MethodInterceptor[] interceptors) {
+            this.invoker = invoker;
+            this.interceptors = interceptors;
+        }
+    }
+
+    private final class Handler implements InvocationHandler {
+        private final Object target;
+
+        Handler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final InterceptedMethod interceptedMethod = interceptedMethods.get(method);
+            if (interceptedMethod == null) {        //Object类的equals、hashCode、toString
+                if (isEquals(method)) {     //参数是代理对象，不能直接交给目标对象比较
+                    return proxy == args[0] || (args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                            && Proxy.getInvocationHandler(args[0]) instanceof Handler
+                            && ((Handler) Proxy.getInvocationHandler(args[0])).target == target);
+                }
+                try {
+                    method.setAccessible(true);
+                    return method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            if (interceptedMethod.interceptors.length == 0) {
+                return (Object) interceptedMethod.invoker.invokeExact(target, args);
+            }
+            return new Invocation(target, method, args == null ? new Object[0] : args, interceptedMethod).proceed();
+        }
+    }
+
+    private static final class Invocation implements MethodInvocation {
+        private final Object target;
+        private final Method method;
+        private final Object[] arguments;
+        private final InterceptedMethod interceptedMethod;
+        private int index;
+
+        Invocation(Object target, Method method, Object[] arguments, InterceptedMethod interceptedMethod) {
+            this.target = target;
+            this.method = method;
+            this.arguments = arguments;
+            this.interceptedMethod = interceptedMethod;
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public Object getTarget() {
+            return target;
+        }
+
+        @Override
+        public Object proceed() throws Throwable {
+            final MethodInterceptor[] interceptors = interceptedMethod.interceptors;
+            if (index < interceptors.length) {
+                return interceptors[index++].invoke(this);
+            }
+            return (Object) interceptedMethod.invoker.invokeExact(target, arguments);
+        }
+    }
+}
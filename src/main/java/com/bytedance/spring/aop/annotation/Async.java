@@ -0,0 +1,20 @@
+package com.bytedance.spring.aop.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 方法在容器的线程池中异步执行，调用方立即返回
+ * 方法的返回值只能是void、CompletableFuture或者Future，方法必须声明在bean实现的接口中
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Async {
+
+    /**
+     * 执行方法的Executor类型的beanName，默认使用容器共享的Executor
+     */
+    String value() default "";
+}
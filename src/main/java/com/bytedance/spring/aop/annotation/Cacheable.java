@@ -0,0 +1,32 @@
+package com.bytedance.spring.aop.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存方法的返回值，参数相同的调用直接返回缓存中的结果，抛出异常的调用不缓存；
+ * 返回CompletableFuture的方法缓存的是future本身，future异常完成时从缓存中移除
+ * 方法必须声明在bean实现的接口中，bean通过JDK动态代理拦截
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cacheable {
+
+    /**
+     * 缓存的名称，同名的方法共享一个缓存（容量、过期时间以第一个方法的为准），key中包含方法，不同方法的结果不会混在一起；
+     * 默认为beanName.方法名，重载的方法再加上参数类型
+     */
+    String name() default "";
+
+    /**
+     * 缓存的最大条目数，超出后按W-TinyLFU策略淘汰
+     */
+    long maximumSize() default 1000;
+
+    /**
+     * 写入后多少毫秒过期，0表示不过期
+     */
+    long expireAfterWrite() default 0;
+}
@@ -0,0 +1,20 @@
+package com.bytedance.spring.aop.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 记录方法的耗时分布，标注在类上时统计这个bean所有接口方法
+ * 也可以通过配置项summer.metrics.timed-packages按包统计，不需要修改代码
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Timed {
+
+    /**
+     * 统计的名称，默认为beanName.方法名；标注在类上时是名称的前缀，每个方法的名称为前缀.beanName.方法名
+     */
+    String value() default "";
+}
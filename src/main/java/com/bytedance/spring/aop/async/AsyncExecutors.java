@@ -0,0 +1,71 @@
+package com.bytedance.spring.aop.async;
+
+import com.bytedance.spring.context.impl.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 创建@Async方法默认使用的Executor
+ * 项目以Java 8为目标编译，不能直接引用虚拟线程的API，所以在运行时通过反射查找
+ * Executors.newVirtualThreadPerTaskExecutor()，JDK 21及以上使用虚拟线程，否则使用平台线程池
+ */
+public class AsyncExecutors {
+
+    // Executor的类型：auto（默认，能用虚拟线程就用）、virtual、platform
+    public static final String EXECUTOR_TYPE = "summer.async.executor";
+
+    // 平台线程池的线程数，默认为CPU核数的两倍
+    public static final String POOL_SIZE = "summer.async.pool-size";
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecutors.class);
+
+    public static ExecutorService create(Environment environment) {
+        final String type = environment.getProperty(EXECUTOR_TYPE, "auto");
+        if (!"platform".equals(type)) {
+            final ExecutorService virtual = virtualThreadExecutor();
+            if (virtual != null) {
+                logger.info("@Async方法使用虚拟线程执行");
+                return virtual;
+            }
+            if ("virtual".equals(type)) {
+                logger.warn("当前JDK不支持虚拟线程，@Async方法使用平台线程池执行");
+            }
+        }
+        final int poolSize = Integer.parseInt(environment.getProperty(POOL_SIZE,
+                String.valueOf(Runtime.getRuntime().availableProcessors() * 2)));
+        logger.info("@Async方法使用{}个线程的平台线程池执行", poolSize);
+        return platformExecutor(poolSize);
+    }
+
+    /**
+     * @return JDK 21以下返回null
+     */
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            final Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static ExecutorService platformExecutor(int poolSize) {
+        final AtomicInteger counter = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            final Thread thread = new Thread(runnable, "summer-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 空闲的线程超时退出，没有异步调用时不占用线程
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
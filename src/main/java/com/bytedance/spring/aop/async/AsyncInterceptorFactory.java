@@ -0,0 +1,149 @@
+package com.bytedance.spring.aop.async;
+
+import com.bytedance.spring.aop.InterceptorFactory;
+import com.bytedance.spring.aop.MethodInterceptor;
+import com.bytedance.spring.aop.annotation.Async;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 为标注了@Async的方法生成拦截器，把调用提交到Executor中执行
+ * 提交时记录调用线程的上下文ClassLoader和MDC，执行时在工作线程上恢复，执行结束后还原工作线程原来的值
+ * 方法的返回值不是void、Future、CompletableFuture时创建代理失败，容器无法启动
+ */
+public class AsyncInterceptorFactory implements InterceptorFactory {
+
+    private final DefaultApplicationContext context;
+
+    // 容器共享的默认Executor，第一次需要时才创建
+    private volatile ExecutorService defaultExecutor;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public AsyncInterceptorFactory(DefaultApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public MethodInterceptor getInterceptor(BeanDefinition beanDefinition, Method method) {
+        final Async async = method.getAnnotation(Async.class);
+        if (async == null) {
+            return null;
+        }
+        final Class<?> returnType = method.getReturnType();
+        // 拦截器返回的是CompletableFuture，其它返回类型（包括Object、CompletionStage）在调用方要么转换失败，要么拿不到方法的返回值
+        if (returnType != void.class && returnType != Future.class && returnType != CompletableFuture.class) {
+            throw new IllegalStateException(beanDefinition.getBeanName() + "." + method.getName() + "标注了@Async，返回值只能是void、Future或者CompletableFuture，实际是"
+                    + returnType.getName());
+        }
+        final String description = beanDefinition.getBeanName() + "." + method.getName();
+        final String executorName = async.value();
+        return invocation -> {
+            final CompletableFuture<Object> result = new CompletableFuture<>();
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            final Map<String, String> mdc = MDC.getCopyOfContextMap();
+            getExecutor(executorName).execute(() -> {
+                final Thread thread = Thread.currentThread();
+                final ClassLoader previousClassLoader = thread.getContextClassLoader();
+                final Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+                thread.setContextClassLoader(classLoader);
+                setMdc(mdc);
+                try {
+                    complete(result, invocation.proceed());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    thread.setContextClassLoader(previousClassLoader);
+                    setMdc(previousMdc);
+                }
+            });
+            if (returnType == void.class) {     //没有人能拿到结果，异常只能记录日志
+                result.whenComplete((value, throwable) -> {
+                    if (throwable != null) {
+                        logger.error("异步方法{}执行失败", description, throwable);
+                    }
+                });
+                return null;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * 方法返回的Future完成时再完成result，result的异常是方法本身抛出的异常，不是包装它的CompletionException、ExecutionException
+     */
+    @SuppressWarnings("unchecked")
+    private static void complete(CompletableFuture<Object> result, Object value) throws Exception {
+        if (value instanceof CompletionStage) {
+            ((CompletionStage<Object>) value).whenComplete((v, throwable) -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable);
+                } else {
+                    result.complete(v);
+                }
+            });
+        } else if (value instanceof Future) {       //方法本身已经在异步线程中执行，在此等待不会阻塞调用方
+            try {
+                result.complete(((Future<?>) value).get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause() != null ? e.getCause() : e);
+            }
+        } else {
+            result.complete(value);
+        }
+    }
+
+    private static void setMdc(Map<String, String> mdc) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+
+    private Executor getExecutor(String executorName) throws Exception {
+        if (!"".equals(executorName)) {
+            return context.getBean(executorName, Executor.class);
+        }
+        return getOrCreateDefaultExecutor();
+    }
+
+    /**
+     * 容器共享的默认Executor，第一次调用时按配置创建
+     * @return
+     */
+    public ExecutorService getOrCreateDefaultExecutor() {
+        ExecutorService executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    defaultExecutor = executor = AsyncExecutors.create(context.getEnvironment());
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 容器共享的默认Executor，没有@Async方法被调用过时为null
+     * @return
+     */
+    public ExecutorService getDefaultExecutor() {
+        return defaultExecutor;
+    }
+}
@@ -0,0 +1,71 @@
+package com.bytedance.spring.aop.cache;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 由方法参数生成缓存的key
+ * 缓存只属于一个方法时不需要区分方法：没有参数时使用同一个常量，只有一个非数组参数时直接使用参数本身，不额外创建对象；
+ * 多个参数时复制参数数组并预先计算hashCode，查找时不需要重复计算
+ * 多个方法通过@Cacheable的name共享缓存时key中包含方法，参数相同的不同方法不会互相覆盖
+ */
+final class CacheKey {
+
+    static final Object EMPTY = new Object();
+
+    // 缓存只属于一个方法时为null
+    private final Method method;
+
+    private final Object[] arguments;
+
+    private final int hashCode;
+
+    private CacheKey(Method method, Object[] arguments) {
+        this.method = method;
+        this.arguments = arguments;
+        this.hashCode = 31 * Objects.hashCode(method) + Arrays.deepHashCode(arguments);
+    }
+
+    static Object of(Object[] arguments) {
+        if (arguments.length == 0) {
+            return EMPTY;
+        }
+        if (arguments.length == 1 && arguments[0] != null && !arguments[0].getClass().isArray()) {
+            return arguments[0];
+        }
+        return new CacheKey(null, arguments.clone());
+    }
+
+    /**
+     * 共享缓存时使用，key由方法和参数组成
+     * @param method
+     * @param arguments
+     * @return
+     */
+    static Object of(Method method, Object[] arguments) {
+        return new CacheKey(method, arguments.clone());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        final CacheKey other = (CacheKey) o;
+        return hashCode == other.hashCode && Objects.equals(method, other.method) && Arrays.deepEquals(arguments, other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return method == null ? Arrays.deepToString(arguments) : method.getName() + Arrays.deepToString(arguments);
+    }
+}
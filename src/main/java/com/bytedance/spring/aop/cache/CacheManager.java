@@ -0,0 +1,93 @@
+package com.bytedance.spring.aop.cache;
+
+import com.bytedance.spring.aop.InterceptorFactory;
+import com.bytedance.spring.aop.MethodInterceptor;
+import com.bytedance.spring.aop.ProxyFactory;
+import com.bytedance.spring.aop.annotation.Cacheable;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 管理所有@Cacheable方法的缓存，并为这些方法生成拦截器
+ */
+public class CacheManager implements InterceptorFactory {
+
+    // 缓存null返回值时使用的占位对象
+    private static final Object NULL_VALUE = new Object();
+
+    private final Map<String, WTinyLfuCache<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Override
+    public MethodInterceptor getInterceptor(BeanDefinition beanDefinition, Method method) {
+        final Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        if (cacheable == null) {
+            return null;
+        }
+        if (method.getReturnType() == void.class) {
+            logger.warn("{}.{}没有返回值，忽略@Cacheable", beanDefinition.getBeanName(), method.getName());
+            return null;
+        }
+        final String name = cacheName(beanDefinition, method, cacheable);
+        final WTinyLfuCache<Object, Object> cache = caches.computeIfAbsent(name,
+                n -> new WTinyLfuCache<>(cacheable.maximumSize(), cacheable.expireAfterWrite()));
+        // 指定了名称的缓存可能被多个方法共享，key中需要包含方法
+        final boolean shared = !"".equals(cacheable.name());
+        return invocation -> {
+            final Object key = shared ? CacheKey.of(method, invocation.getArguments()) : CacheKey.of(invocation.getArguments());
+            final Object cached = cache.get(key);
+            if (cached != null && !isFailed(cached)) {
+                return cached == NULL_VALUE ? null : cached;
+            }
+            final Object result = invocation.proceed();
+            if (result instanceof CompletableFuture) {
+                final CompletableFuture<?> future = (CompletableFuture<?>) result;
+                if (future.isCompletedExceptionally()) {
+                    return result;
+                }
+                // 异步方法（例如同时标注了@Async）的结果在完成之前就放入缓存，异常完成时再移除，下次调用重新执行
+                cache.put(key, future);
+                future.whenComplete((value, e) -> {
+                    if (e != null) {
+                        cache.invalidate(key, future);
+                    }
+                });
+                return result;
+            }
+            cache.put(key, result == null ? NULL_VALUE : result);
+            return result;
+        };
+    }
+
+    private static boolean isFailed(Object cached) {
+        return cached instanceof CompletableFuture && ((CompletableFuture<?>) cached).isCompletedExceptionally();
+    }
+
+    public WTinyLfuCache<Object, Object> getCache(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * 所有缓存当前的统计信息，按缓存名称排序
+     * @return
+     */
+    public Map<String, CacheStats> getStats() {
+        final Map<String, CacheStats> stats = new TreeMap<>();
+        for (Map.Entry<String, WTinyLfuCache<Object, Object>> entry : caches.entrySet()) {
+            stats.put(entry.getKey(), entry.getValue().stats());
+        }
+        return stats;
+    }
+
+    private static String cacheName(BeanDefinition beanDefinition, Method method, Cacheable cacheable) {
+        return "".equals(cacheable.name()) ? ProxyFactory.methodName(beanDefinition, method) : cacheable.name();
+    }
+}
@@ -0,0 +1,63 @@
+package com.bytedance.spring.aop.cache;
+
+/**
+ * 某一时刻缓存的统计信息
+ */
+public class CacheStats {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    // 因容量不足被淘汰的条目数
+    private final long evictionCount;
+
+    // 因过期被删除的条目数
+    private final long expirationCount;
+
+    private final long size;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, long expirationCount, long size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.expirationCount = expirationCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        final long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + String.format("%.4f", getHitRate()) +
+                ", evictionCount=" + evictionCount +
+                ", expirationCount=" + expirationCount +
+                ", size=" + size + "}";
+    }
+}
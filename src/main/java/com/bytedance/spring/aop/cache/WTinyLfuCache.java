@@ -0,0 +1,361 @@
+package com.bytedance.spring.aop.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 有容量上限的并发缓存，淘汰策略为W-TinyLFU：
+ * 新条目先进入占容量1%的窗口区（LRU），从窗口区挤出的条目进入主区的试用段，
+ * 主区满时用FrequencySketch比较试用段新来的条目和最久未访问的条目的访问频率，频率低的被淘汰；
+ * 试用段中再次被访问的条目晋升到保护段（占主区的80%），保护段满时最久未访问的条目降回试用段
+ *
+ * 读操作不加锁：在ConcurrentHashMap中查找后把条目放入一个有损的环形缓冲区，
+ * 缓冲区写满一轮时由抢到淘汰锁的线程统一更新LRU队列和访问频率；写操作在淘汰锁内完成
+ * 过期的条目在被读到时删除，未被读到的随容量淘汰
+ * @param <K>
+ * @param <V>
+ */
+public class WTinyLfuCache<K, V> {
+
+    private static final int READ_BUFFER_SIZE = 64;
+
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+    private static final int WINDOW = 0;
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private static final int REMOVED = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    private final long maximumSize;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    // 写入后过期的时间，0表示不过期
+    private final long expireAfterWriteNanos;
+
+    // 以下的队列、计数和sketch只在持有evictionLock时访问
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final FrequencySketch sketch;
+
+    private final AccessOrderDeque<K, V> window = new AccessOrderDeque<>();
+
+    private final AccessOrderDeque<K, V> probation = new AccessOrderDeque<>();
+
+    private final AccessOrderDeque<K, V> protectedDeque = new AccessOrderDeque<>();
+
+    private long windowSize;
+
+    private long probationSize;
+
+    private long protectedSize;
+
+    private final AtomicReferenceArray<Node<K, V>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+
+    private final AtomicLong readCounter = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    /**
+     * @param maximumSize 最大条目数
+     * @param expireAfterWriteMillis 写入后多少毫秒过期，0表示不过期
+     */
+    public WTinyLfuCache(long maximumSize, long expireAfterWriteMillis) {
+        if (maximumSize <= 0 || expireAfterWriteMillis < 0) {
+            throw new IllegalArgumentException("maximumSize必须大于0，expireAfterWrite不能小于0");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMaximum = Math.max(1, maximumSize / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * 80 / 100;
+        this.expireAfterWriteNanos = expireAfterWriteMillis * 1000000;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * 获取缓存的值，不存在或者已过期时返回null
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        final Node<K, V> node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        if (isExpired(node, System.nanoTime())) {
+            missCount.increment();
+            evictionLock.lock();
+            try {
+                if (data.remove(key, node)) {
+                    unlink(node);
+                    expirationCount.increment();
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+            return null;
+        }
+        hitCount.increment();
+        recordRead(node);
+        return node.value;
+    }
+
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        final Node<K, V> node = new Node<>(key, value, System.nanoTime());
+        evictionLock.lock();
+        try {
+            drainReadBuffer();
+            final Node<K, V> old = data.put(key, node);
+            if (old != null) {
+                unlink(old);
+            }
+            sketch.increment(key);
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowSize++;
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * key当前对应的仍然是value时才移除，已经被替换成新的值时不移除
+     * @param key
+     * @param value
+     */
+    public void invalidate(K key, V value) {
+        evictionLock.lock();
+        try {
+            final Node<K, V> node = data.get(key);
+            if (node != null && node.value == value && data.remove(key, node)) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        evictionLock.lock();
+        try {
+            for (K key : data.keySet()) {
+                final Node<K, V> node = data.remove(key);
+                if (node != null) {
+                    unlink(node);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public long size() {
+        return data.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), expirationCount.sum(), data.size());
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos;
+    }
+
+    /**
+     * 记录一次读取，缓冲区满一轮时尝试获取锁并处理；没有抢到锁或者槽位被覆盖时丢弃，只影响淘汰的精确度
+     */
+    private void recordRead(Node<K, V> node) {
+        final long index = readCounter.getAndIncrement();
+        readBuffer.lazySet((int) (index & READ_BUFFER_MASK), node);
+        if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && evictionLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void drainReadBuffer() {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            final Node<K, V> node = readBuffer.getAndSet(i, null);
+            if (node != null) {
+                onAccess(node);
+            }
+        }
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (node.queue == REMOVED) {
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.queue == WINDOW) {
+            window.moveToBack(node);
+        } else if (node.queue == PROBATION) {      //试用段中再次被访问，晋升到保护段
+            probation.remove(node);
+            probationSize--;
+            node.queue = PROTECTED;
+            protectedDeque.addLast(node);
+            protectedSize++;
+            while (protectedSize > protectedMaximum) {
+                final Node<K, V> demoted = protectedDeque.pollFirst();
+                protectedSize--;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+                probationSize++;
+            }
+        } else {
+            protectedDeque.moveToBack(node);
+        }
+    }
+
+    /**
+     * 窗口区超出容量的条目移入试用段，总数超出容量时在候选者（试用段最新）和受害者（试用段最旧）中淘汰频率较低的一个
+     */
+    private void evict() {
+        while (windowSize > windowMaximum) {
+            final Node<K, V> node = window.pollFirst();
+            windowSize--;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            probationSize++;
+        }
+        while (windowSize + probationSize + protectedSize > maximumSize) {
+            Node<K, V> victim = probation.peekFirst();
+            final Node<K, V> candidate = probation.peekLast();
+            if (victim == null) {       //试用段为空时从保护段或窗口区淘汰
+                victim = protectedDeque.peekFirst() != null ? protectedDeque.peekFirst() : window.peekFirst();
+            } else if (victim != candidate && sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                victim = candidate;
+            }
+            data.remove(victim.key, victim);
+            unlink(victim);
+            evictionCount.increment();
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowSize--;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                probationSize--;
+                break;
+            case PROTECTED:
+                protectedDeque.remove(node);
+                protectedSize--;
+                break;
+            default:
+                return;
+        }
+        node.queue = REMOVED;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final long writeTime;
+        // 所在的队列，只在持有evictionLock时读写
+        int queue = REMOVED;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+        }
+    }
+
+    /**
+     * 侵入式的双向链表，头部是最久未访问的条目
+     */
+    private static final class AccessOrderDeque<K, V> {
+        private Node<K, V> head;
+        private Node<K, V> tail;
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        Node<K, V> peekLast() {
+            return tail;
+        }
+
+        Node<K, V> pollFirst() {
+            final Node<K, V> node = head;
+            if (node != null) {
+                remove(node);
+            }
+            return node;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = node.next = null;
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
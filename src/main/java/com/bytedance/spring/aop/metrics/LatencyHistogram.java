@@ -0,0 +1,99 @@
+package com.bytedance.spring.aop.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以纳秒为单位的耗时直方图，桶的划分与HdrHistogram相同：
+ * 小于128ns时每纳秒一个桶，之后每翻一倍分为64个桶，相对误差不超过1/64，最大记录约1小时，超出的记为最大值
+ * 记录只是对AtomicLongArray中一个元素的原子自增，没有锁也不分配对象
+ */
+public class LatencyHistogram {
+
+    // 每个数量级内的精度，2^SUB_BUCKET_BITS个线性的桶
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+    // 约1小时
+    private static final long HIGHEST_TRACKABLE_VALUE = (1L << 42) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_VALUE);
+        counts.getAndIncrement(indexOf(value));
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * 复制当前的计数并计算各分位数，复制过程中仍有记录时结果只是近似的一致
+     * @return
+     */
+    public LatencySnapshot snapshot() {
+        final long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        final long max = maxNanos.get();
+        return new LatencySnapshot(count, count == 0 ? 0 : totalNanos.sum() / count,
+                percentile(copy, count, 0.5, max), percentile(copy, count, 0.9, max),
+                percentile(copy, count, 0.99, max), percentile(copy, count, 0.999, max), max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * 找到累计计数第一次达到count * percentile的桶，返回桶内的最大值，不超过记录到的最大值
+     */
+    private static long percentile(long[] counts, long count, double percentile, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * percentile));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexOf(long value) {
+        if (value < (1 << SUB_BUCKET_BITS)) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (exponent << (SUB_BUCKET_BITS - 1)) + (int) (value >>> exponent);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < (1 << SUB_BUCKET_BITS)) {
+            return index;
+        }
+        final int exponent = (index >>> (SUB_BUCKET_BITS - 1)) - 1;
+        final long subBucket = index - ((long) exponent << (SUB_BUCKET_BITS - 1));
+        return ((subBucket + 1) << exponent) - 1;
+    }
+}
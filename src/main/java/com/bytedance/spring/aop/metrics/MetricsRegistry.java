@@ -0,0 +1,126 @@
+package com.bytedance.spring.aop.metrics;
+
+import com.bytedance.spring.aop.InterceptorFactory;
+import com.bytedance.spring.aop.MethodInterceptor;
+import com.bytedance.spring.aop.ProxyFactory;
+import com.bytedance.spring.aop.annotation.Timed;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 为需要统计耗时的方法生成拦截器，并保存每个方法的耗时直方图
+ * 需要统计的方法：标注了@Timed的方法、标注了@Timed的类的接口方法、配置项summer.metrics.timed-packages中的包下的bean的接口方法
+ * 拦截器只在调用前后各读一次System.nanoTime()并记录到直方图，不分配对象
+ */
+public class MetricsRegistry implements InterceptorFactory {
+
+    // 按包统计耗时，多个包用逗号分隔，包括子包
+    public static final String TIMED_PACKAGES = "summer.metrics.timed-packages";
+
+    private final DefaultApplicationContext context;
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // 配置项解析后的包名，第一次需要时才解析
+    private volatile String[] timedPackages;
+
+    public MetricsRegistry(DefaultApplicationContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public MethodInterceptor getInterceptor(BeanDefinition beanDefinition, Method method) {
+        final Class<?> beanClass = beanDefinition.getBeanClass();
+        final Timed timed = method.getAnnotation(Timed.class);
+        final String name;
+        if (timed != null) {
+            name = "".equals(timed.value()) ? ProxyFactory.methodName(beanDefinition, method) : timed.value();
+        } else if (beanClass.getAnnotation(Timed.class) != null || inTimedPackage(beanClass)) {
+            if (!ProxyFactory.isInterfaceMethod(beanClass, method)) {       //按类或者按包统计时跳过不能拦截的方法
+                return null;
+            }
+            // 类上的名称是前缀，每个方法仍然分开统计
+            final Timed classTimed = beanClass.getAnnotation(Timed.class);
+            final String prefix = classTimed == null ? "" : classTimed.value();
+            name = "".equals(prefix) ? ProxyFactory.methodName(beanDefinition, method)
+                    : prefix + "." + ProxyFactory.methodName(beanDefinition, method);
+        } else {
+            return null;
+        }
+        final LatencyHistogram histogram = histograms.computeIfAbsent(name, n -> new LatencyHistogram());
+        return invocation -> {
+            final long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                histogram.record(System.nanoTime() - start);
+            }
+        };
+    }
+
+    public LatencyHistogram getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    /**
+     * 所有方法当前的耗时统计，按名称排序
+     * @return
+     */
+    public Map<String, LatencySnapshot> getSnapshots() {
+        final Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * 以文本表格的形式输出所有方法的耗时统计，单位为微秒
+     * @return
+     */
+    public String dump() {
+        final Map<String, LatencySnapshot> snapshots = getSnapshots();
+        int width = "method".length();
+        for (String name : snapshots.keySet()) {
+            width = Math.max(width, name.length());
+        }
+        final String format = "%-" + width + "s %10s %10s %10s %10s %10s %10s %10s%n";
+        final StringBuilder out = new StringBuilder();
+        out.append(String.format(format, "method", "count", "mean(us)", "p50(us)", "p90(us)", "p99(us)", "p999(us)", "max(us)"));
+        for (Map.Entry<String, LatencySnapshot> entry : snapshots.entrySet()) {
+            final LatencySnapshot s = entry.getValue();
+            out.append(String.format(format, entry.getKey(), s.getCount(), micros(s.getMean()), micros(s.getP50()),
+                    micros(s.getP90()), micros(s.getP99()), micros(s.getP999()), micros(s.getMax())));
+        }
+        return out.toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.3f", nanos / 1000.0);
+    }
+
+    /**
+     * bean是否在配置项summer.metrics.timed-packages指定的包中，这样的bean的所有接口方法都统计耗时
+     * @param beanClass
+     * @return
+     */
+    public boolean inTimedPackage(Class<?> beanClass) {
+        String[] packages = timedPackages;
+        if (packages == null) {
+            final String property = context.getEnvironment().getProperty(TIMED_PACKAGES, "").trim();
+            timedPackages = packages = property.isEmpty() ? new String[0] : property.split("\\s*,\\s*");
+        }
+        final String className = beanClass.getName();
+        for (String timedPackage : packages) {
+            if (className.startsWith(timedPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bytedance.spring.aot;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 生成AppCDS（应用类数据共享）归档：把容器启动时用到的类预先解析好存入归档文件，之后的JVM启动时直接映射，
+ * 不需要再逐个加载、解析和校验这些类
+ *
+ * 用法：
+ * 1、以-Dsummer.cds.class-list=app.classlist启动一次应用，容器启动完成后写出用到的类的列表
+ * 2、java -cp &lt;应用的classpath&gt; com.bytedance.spring.aot.AppCds app.classlist app.jsa，生成归档
+ * 3、之后以java -XX:SharedArchiveFile=app.jsa -cp &lt;同样的classpath&gt; ...启动应用
+ * 生成归档和使用归档时的classpath必须一致（使用归档时可以在末尾追加），且只能由jar组成，JDK不归档目录中的类；需要JDK 10及以上
+ * 容器写出的列表只包含扫描、创建bean时用到的类以及容器已经使用的自身的类，不额外加载任何类；
+ * 需要JVM实际加载的全部类时，第1步改为以-XX:DumpLoadedClassList=app.classlist启动一次应用，JVM退出时写出列表，之后的步骤相同
+ */
+public class AppCds {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppCds.class);
+
+    private AppCds() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("用法：AppCds <class list文件> <归档文件>");
+            System.exit(1);
+        }
+        dumpArchive(Paths.get(args[0]), Paths.get(args[1]), System.getProperty("java.class.path"));
+    }
+
+    /**
+     * 以JDK的class list格式（每行一个/分隔的类名）写出类以及它们的父类、接口，传入的类都应当是已经加载的类
+     * JDK自带的类已经在JDK默认的归档中，动态代理类、lambda等运行时生成的类不在class list中，都会跳过
+     * @param classes
+     * @param file
+     * @return 写出的类的数量
+     */
+    public static int writeClassList(Collection<Class<?>> classes, Path file) throws IOException {
+        final Set<Class<?>> all = new LinkedHashSet<>();
+        for (Class<?> clazz : classes) {
+            addWithSupertypes(clazz, all);
+        }
+        final List<String> lines = new ArrayList<>(all.size());
+        for (Class<?> clazz : all) {
+            lines.add(clazz.getName().replace('.', '/'));
+        }
+        final Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        logger.info("写出class list：{}，共{}个类", file, lines.size());
+        return lines.size();
+    }
+
+    /**
+     * 启动一个新的JVM，按class list生成AppCDS归档
+     * @param classList
+     * @param archive
+     * @param classPath 应用的classpath，必须与之后使用归档时的classpath一致
+     */
+    public static void dumpArchive(Path classList, Path archive, String classPath) throws IOException, InterruptedException {
+        for (String entry : classPath.split(File.pathSeparator)) {
+            final File file = new File(entry);
+            if (file.isDirectory() && file.list() != null && file.list().length > 0) {
+                throw new IOException("classpath中的" + entry + "是目录，AppCDS只能归档jar中的类，请先打包为jar");
+            }
+        }
+        final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        final List<String> command = new ArrayList<>(Arrays.asList(java, "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList.toAbsolutePath(),
+                "-XX:SharedArchiveFile=" + archive.toAbsolutePath(),
+                "-cp", classPath));
+        logger.info("生成AppCDS归档：{}", String.join(" ", command));
+        final Process process = new ProcessBuilder(command).inheritIO().start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("生成AppCDS归档失败，退出码" + exitCode);
+        }
+        logger.info("AppCDS归档生成完成：{}，启动时加上-XX:SharedArchiveFile={}", archive, archive.toAbsolutePath());
+    }
+
+    private static void addWithSupertypes(Class<?> clazz, Set<Class<?>> classes) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive() || clazz.getClassLoader() == null || Proxy.isProxyClass(clazz)
+                || clazz.getName().contains("$$Lambda") || !classes.add(clazz)) {
+            return;
+        }
+        // 父类必须先于子类出现在列表中
+        classes.remove(clazz);
+        if (clazz.getSuperclass() != null) {
+            addWithSupertypes(clazz.getSuperclass(), classes);
+        }
+        for (Class<?> anInterface : clazz.getInterfaces()) {
+            addWithSupertypes(anInterface, classes);
+        }
+        classes.add(clazz);
+    }
+}
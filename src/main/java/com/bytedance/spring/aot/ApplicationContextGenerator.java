@@ -0,0 +1,389 @@
+package com.bytedance.spring.aot;
+
+import com.bytedance.spring.aop.ProxyFactory;
+import com.bytedance.spring.context.impl.BeanDefinitionScanner;
+import com.bytedance.spring.context.impl.Environment;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import com.bytedance.spring.ioc.bean.BeanDefinitionRegistry;
+import com.bytedance.spring.ioc.bean.InjectionPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 构建时生成容器代码的工具
+ * 在构建阶段扫描basePackages，生成一个DefaultApplicationContext的子类，其中直接调用构造器、@Bean方法并直接读写需要注入的域，
+ * 运行时不再需要扫描classpath，也不需要通过反射解析注解、创建对象和注入，适合启动时间敏感的场景以及GraalVM native-image
+ *
+ * 用法：java -cp &lt;应用的classpath&gt; com.bytedance.spring.aot.ApplicationContextGenerator &lt;输出目录&gt; &lt;生成类的全限定名&gt;
+ *      [--properties=配置文件] [--allow-reflection] &lt;basePackage&gt;...
+ * 之后将输出目录加入编译的源码目录，用new 生成的类()代替new DefaultApplicationContext(basePackages)
+ * 条件注解（@Profile等）在生成时根据指定的配置文件和系统属性求值，生成的代码中只包含满足条件的bean
+ *
+ * 生成的代码只能访问public的成员以及与生成类同一个包中的非private成员，
+ * 存在无法直接访问的构造器、@Bean方法和域（例如private的@Autowired域）时生成失败，并列出所有这样的成员：
+ * 将它们改为public，或者去掉private并把生成的类放在它们所在的包中；
+ * 指定--allow-reflection时改为在启动时通过反射获取一次这些成员，生成时给出警告，这样的代码在native-image中需要额外的反射配置
+ *
+ * 以下部分即使生成了代码，启动时仍然使用反射：
+ * 需要代理的bean（类或者方法上有@Cacheable、@Async、@Timed，或者在按包统计耗时的包中）在启动时解析方法上的注解并创建JDK动态代理，
+ * 生成时预先检查了哪些bean没有这些注解，启动时跳过它们；@PreDestroy方法在启动时按名称获取，关闭时通过反射调用
+ */
+public class ApplicationContextGenerator {
+
+    // 每个生成的方法中注册的bean的数量，防止单个方法超过64KB的字节码限制
+    private static final int BEANS_PER_METHOD = 50;
+
+    private static final String PROPERTIES_OPTION = "--properties=";
+
+    private static final String ALLOW_REFLECTION_OPTION = "--allow-reflection";
+
+    private final String packageName;
+
+    private final String simpleName;
+
+    private final String[] basePackages;
+
+    private final BeanDefinitionRegistry registry = new BeanDefinitionRegistry();
+
+    // 生成的代码中无法直接访问而需要反射的位置
+    private final List<String> reflectiveAccesses = new ArrayList<>();
+
+    // 为true时无法直接访问的成员退回到启动时通过反射访问，否则生成失败
+    private boolean allowReflection;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public ApplicationContextGenerator(String className, String... basePackages) throws Exception {
+        this(className, null, basePackages);
+    }
+
+    public ApplicationContextGenerator(String className, String propertyFile, String... basePackages) throws Exception {
+        final int index = className.lastIndexOf('.');
+        this.packageName = index < 0 ? "" : className.substring(0, index);
+        this.simpleName = className.substring(index + 1);
+        this.basePackages = basePackages;
+        final BeanDefinitionScanner scanner = new BeanDefinitionScanner(registry, Environment.load(propertyFile));
+        for (String basePackage : basePackages) {
+            scanner.scan(basePackage);
+        }
+        // 扫描时推迟解析的懒加载bean也需要生成完整的注入代码
+        for (int id = 0; id < registry.size(); id++) {
+            final BeanDefinition beanDefinition = registry.get(id);
+            if (!beanDefinition.getResolved()) {
+                BeanDefinitionScanner.resolve(beanDefinition);
+                beanDefinition.setResolved(true);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String propertyFile = null;
+        boolean allowReflection = false;
+        int first = 2;
+        for (; first < args.length && args[first].startsWith("--"); first++) {
+            if (args[first].startsWith(PROPERTIES_OPTION)) {
+                propertyFile = args[first].substring(PROPERTIES_OPTION.length());
+            } else if (args[first].equals(ALLOW_REFLECTION_OPTION)) {
+                allowReflection = true;
+            } else {
+                first = args.length;        //未知的选项，打印用法
+            }
+        }
+        if (first >= args.length) {
+            System.err.println("用法：ApplicationContextGenerator <输出目录> <生成类的全限定名> [--properties=配置文件] [--allow-reflection] <basePackage>...");
+            System.exit(1);
+        }
+        final String[] basePackages = new String[args.length - first];
+        System.arraycopy(args, first, basePackages, 0, basePackages.length);
+        final ApplicationContextGenerator generator = new ApplicationContextGenerator(args[1], propertyFile, basePackages);
+        generator.setAllowReflection(allowReflection);
+        generator.writeTo(Paths.get(args[0]));
+    }
+
+    /**
+     * @param allowReflection 为true时无法直接访问的成员在启动时通过反射访问，否则生成失败
+     */
+    public void setAllowReflection(boolean allowReflection) {
+        this.allowReflection = allowReflection;
+    }
+
+    /**
+     * 将生成的源码写入输出目录中对应包的路径下
+     * @param outputDirectory
+     * @return 生成的文件
+     */
+    public Path writeTo(Path outputDirectory) throws IOException {
+        final String source = generate();
+        Path directory = outputDirectory;
+        if (!packageName.isEmpty()) {
+            directory = outputDirectory.resolve(packageName.replace('.', '/'));
+        }
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(simpleName + ".java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        logger.info("生成容器代码完成：{}，共{}个bean", file, registry.size());
+        for (String access : reflectiveAccesses) {
+            logger.warn("生成的代码无法直接访问，启动时将使用反射：{}", access);
+        }
+        return file;
+    }
+
+    /**
+     * @return 生成的源码
+     * @throws IllegalStateException 存在无法直接访问的成员，且没有允许反射
+     */
+    public String generate() {
+        reflectiveAccesses.clear();
+        final StringBuilder out = new StringBuilder(4096);
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import com.bytedance.spring.context.impl.DefaultApplicationContext;\n")
+                .append("import com.bytedance.spring.ioc.bean.BeanDefinition;\n")
+                .append("import com.bytedance.spring.ioc.bean.InjectionPoint;\n")
+                .append("import com.bytedance.spring.ioc.tools.FieldAccessors;\n")
+                .append("import com.bytedance.spring.ioc.tools.Instantiators;\n\n")
+                .append("import java.util.ArrayList;\n")
+                .append("import java.util.List;\n\n")
+                .append("/**\n")
+                .append(" * ").append(escape("由ApplicationContextGenerator根据" + String.join(", ", basePackages) + "生成，请勿手动修改")).append("\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public class ").append(simpleName).append(" extends DefaultApplicationContext {\n\n")
+                .append("    public ").append(simpleName).append("() throws Exception {\n")
+                .append("        this(null);\n")
+                .append("    }\n\n")
+                .append("    public ").append(simpleName).append("(String propertyFile) throws Exception {\n")
+                .append("        super(propertyFile, beanDefinitions());\n")
+                .append("        start();\n")
+                .append("    }\n\n")
+                .append("    private static List<BeanDefinition> beanDefinitions() throws Exception {\n")
+                .append("        final List<BeanDefinition> beanDefinitions = new ArrayList<>(").append(registry.size()).append(");\n");
+        final int methods = (registry.size() + BEANS_PER_METHOD - 1) / BEANS_PER_METHOD;
+        for (int i = 0; i < methods; i++) {
+            out.append("        beanDefinitions").append(i).append("(beanDefinitions);\n");
+        }
+        out.append("        return beanDefinitions;\n")
+                .append("    }\n");
+        for (int i = 0; i < methods; i++) {
+            out.append("\n    private static void beanDefinitions").append(i).append("(List<BeanDefinition> beanDefinitions) throws Exception {\n")
+                    .append("        BeanDefinition beanDefinition;\n");
+            final int end = Math.min(registry.size(), (i + 1) * BEANS_PER_METHOD);
+            for (int id = i * BEANS_PER_METHOD; id < end; id++) {
+                generateBeanDefinition(out, registry.get(id));
+            }
+            out.append("    }\n");
+        }
+        out.append("}\n");
+        if (!allowReflection && !reflectiveAccesses.isEmpty()) {
+            throw new IllegalStateException("生成的代码无法直接访问以下成员，请将它们改为public，或者去掉private并把生成的类放在它们所在的包中，"
+                    + "或者使用" + ALLOW_REFLECTION_OPTION + "允许启动时通过反射访问：\n    " + String.join("\n    ", reflectiveAccesses));
+        }
+        return out.toString();
+    }
+
+    private void generateBeanDefinition(StringBuilder out, BeanDefinition beanDefinition) {
+        out.append("\n        beanDefinition = new BeanDefinition(").append(literal(beanDefinition.getBeanName())).append(", ")
+                .append(classLiteral(beanDefinition.getBeanClass())).append(", ")
+                .append(beanDefinition.getLazy()).append(", ")
+                .append(beanDefinition.getSingleton()).append(");\n");
+        if (beanDefinition.getOrder() != Integer.MAX_VALUE) {
+            out.append("        beanDefinition.setOrder(").append(beanDefinition.getOrder()).append(");\n");
+        }
+        if (beanDefinition.getIdleTimeout() > 0) {
+            out.append("        beanDefinition.setIdleTimeout(").append(beanDefinition.getIdleTimeout()).append("L);\n");
+        }
+        if (beanDefinition.getDestroyMethod() != null) {
+            final Method destroyMethod = beanDefinition.getDestroyMethod();
+            out.append("        beanDefinition.setDestroyMethod(").append(classLiteral(destroyMethod.getDeclaringClass()))
+                    .append(".getDeclaredMethod(").append(literal(destroyMethod.getName())).append("));\n");
+        }
+        if (!ProxyFactory.hasInterceptorAnnotations(beanDefinition.getBeanClass())) {
+            out.append("        beanDefinition.setProxyCandidate(false);\n");
+        }
+        if (beanDefinition.getFactoryBeanName() != null) {
+            out.append("        beanDefinition.setFactoryBeanName(").append(literal(beanDefinition.getFactoryBeanName())).append(");\n");
+        }
+        out.append("        beanDefinition.setInstantiator(").append(instantiator(beanDefinition.getConstructorOrFactoryMethod())).append(");\n");
+        if (beanDefinition.getConstructorArguments().length > 0) {
+            out.append("        beanDefinition.setConstructorArguments(new InjectionPoint[]{\n");
+            for (InjectionPoint argument : beanDefinition.getConstructorArguments()) {
+                out.append("                ").append(injectionPoint(argument)).append(",\n");
+            }
+            out.append("        });\n");
+        }
+        if (beanDefinition.getFieldInjectionPoints().length > 0) {
+            out.append("        beanDefinition.setFieldInjectionPoints(new InjectionPoint[]{\n");
+            for (InjectionPoint field : beanDefinition.getFieldInjectionPoints()) {
+                out.append("                ").append(injectionPoint(field)).append(",\n");
+            }
+            out.append("        });\n");
+        }
+        out.append("        beanDefinitions.add(beanDefinition);\n");
+    }
+
+    /**
+     * 构造器生成args -&gt; new Xxx((A) args[0], ...)，@Bean方法生成args -&gt; ((Config) args[0]).method((A) args[1], ...)
+     */
+    private String instantiator(Executable executable) {
+        final Class<?>[] parameterTypes = executable.getParameterTypes();
+        boolean accessible = isAccessible(executable);
+        for (Class<?> parameterType : parameterTypes) {
+            accessible &= isAccessible(parameterType);
+        }
+        final Class<?> declaringClass = executable.getDeclaringClass();
+        if (!accessible) {
+            reflectiveAccesses.add(executable.toString());
+            final String lookup = executable instanceof Constructor
+                    ? "Instantiators.forConstructor(" + classLiteral(declaringClass) + ".getDeclaredConstructor("
+                    : "Instantiators.forFactoryMethod(" + classLiteral(declaringClass) + ".getDeclaredMethod(" + literal(executable.getName())
+                    + (parameterTypes.length > 0 ? ", " : "");
+            final StringBuilder types = new StringBuilder();
+            for (Class<?> parameterType : parameterTypes) {
+                if (types.length() > 0) {
+                    types.append(", ");
+                }
+                types.append(classLiteral(parameterType));
+            }
+            return lookup + types + "))";
+        }
+        final StringBuilder call = new StringBuilder("args -> ");
+        int offset = 0;
+        if (executable instanceof Constructor) {
+            call.append("new ").append(declaringClass.getCanonicalName()).append("(");
+        } else if (Modifier.isStatic(executable.getModifiers())) {
+            call.append(declaringClass.getCanonicalName()).append(".").append(executable.getName()).append("(");
+            offset = 1;
+        } else {
+            call.append("((").append(declaringClass.getCanonicalName()).append(") args[0]).").append(executable.getName()).append("(");
+            offset = 1;
+        }
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                call.append(", ");
+            }
+            call.append("(").append(castType(parameterTypes[i])).append(") args[").append(i + offset).append("]");
+        }
+        return call.append(")").toString();
+    }
+
+    private String injectionPoint(InjectionPoint injectionPoint) {
+        return "new InjectionPoint(InjectionPoint.Kind." + injectionPoint.getKind().name() + ", null, "
+                + accessor(injectionPoint.getField()) + ", "
+                + classLiteral(injectionPoint.getType()) + ", "
+                + classLiteral(injectionPoint.getDependencyType()) + ", "
+                + literal(injectionPoint.getQualifier()) + ", "
+                + literal(injectionPoint.getValue()) + ", "
+                + literal(injectionPoint.getDescription()) + ")";
+    }
+
+    /**
+     * 可以直接访问的域生成FieldAccessors.of(b -&gt; ((Xxx) b).field, (b, v) -&gt; ((Xxx) b).field = (A) v)
+     */
+    private String accessor(Field field) {
+        if (field == null) {
+            return "null";
+        }
+        final Class<?> declaringClass = field.getDeclaringClass();
+        if (!isAccessible(field) || !isAccessible(field.getType()) || Modifier.isFinal(field.getModifiers())) {
+            reflectiveAccesses.add(field.toString());
+            return "FieldAccessors.forField(" + classLiteral(declaringClass) + ".getDeclaredField(" + literal(field.getName()) + "))";
+        }
+        final String target = "((" + declaringClass.getCanonicalName() + ") b)." + field.getName();
+        return "FieldAccessors.of(b -> " + target + ", (b, v) -> " + target + " = (" + castType(field.getType()) + ") v)";
+    }
+
+    private boolean isAccessible(Member member) {
+        final int modifiers = member.getModifiers();
+        if (!isAccessible(member.getDeclaringClass()) || Modifier.isPrivate(modifiers)) {
+            return false;
+        }
+        return Modifier.isPublic(modifiers) || inGeneratedPackage(member.getDeclaringClass());
+    }
+
+    private boolean isAccessible(Class<?> clazz) {
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        if (clazz.isArray()) {
+            return isAccessible(clazz.getComponentType());
+        }
+        if (clazz.getCanonicalName() == null) {     //匿名类、局部类
+            return false;
+        }
+        final int modifiers = clazz.getModifiers();
+        if (Modifier.isPrivate(modifiers) || (!Modifier.isPublic(modifiers) && !inGeneratedPackage(clazz))) {
+            return false;
+        }
+        return clazz.getEnclosingClass() == null || isAccessible(clazz.getEnclosingClass());
+    }
+
+    private boolean inGeneratedPackage(Class<?> clazz) {
+        final Package pkg = clazz.getPackage();
+        return packageName.equals(pkg == null ? "" : pkg.getName());
+    }
+
+    private String classLiteral(Class<?> clazz) {
+        if (isAccessible(clazz)) {
+            return clazz.getCanonicalName() + ".class";
+        }
+        return "Class.forName(" + literal(clazz.getName()) + ")";
+    }
+
+    /**
+     * 参数的类型转换，基本类型先转换为包装类型再自动拆箱
+     */
+    private String castType(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type.getCanonicalName();
+        }
+        if (type == int.class) return "Integer";
+        if (type == char.class) return "Character";
+        if (type == long.class) return "Long";
+        if (type == short.class) return "Short";
+        if (type == byte.class) return "Byte";
+        if (type == double.class) return "Double";
+        if (type == float.class) return "Float";
+        return "Boolean";
+    }
+
+    private static String literal(String value) {
+        return value == null ? "null" : "\"" + escape(value) + "\"";
+    }
+
+    /**
+     * 转义为Java字符串字面量的内容，非ASCII字符转换为\\uXXXX，使生成的源码不依赖编译时的编码
+     */
+    private static String escape(String value) {
+        final StringBuilder result = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c == '\n') {
+                result.append("\\n");
+            } else if (c == '\r') {
+                result.append("\\r");
+            } else if (c < 0x20 || c > 0x7e) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
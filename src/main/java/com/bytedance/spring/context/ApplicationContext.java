@@ -5,6 +5,7 @@ import com.bytedance.spring.exception.NoSuchBeanException;
 import com.bytedance.spring.ioc.bean.BeanDefinition;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public interface ApplicationContext {
     /**
@@ -31,6 +32,65 @@ public interface ApplicationContext {
      */
     <T> T getBean(String name, Class<T> beanType) throws Exception;
 
+    /**
+     * 根据name获取对象，不存在时返回null而不是抛出异常，适合探测可选的bean
+     * 不存在时只有一次哈希查找，不创建任何对象；存在但创建失败时仍然抛出异常
+     * @param name
+     * @return
+     */
+    Object findBean(String name) throws Exception;
+
+    /**
+     * 根据类型获取对象，不存在或者不唯一时返回null
+     * @param beanType
+     * @param <T>
+     * @return
+     */
+    <T> T findBean(Class<T> beanType) throws Exception;
+
+    /**
+     * 同时根据name和类型获取对象，不存在或者类型不符时返回null
+     * @param name
+     * @param beanType
+     * @param <T>
+     * @return
+     */
+    <T> T findBean(String name, Class<T> beanType) throws Exception;
+
+    /**
+     * 异步获取bean，调用线程不会因为创建bean而阻塞，适合创建很慢的懒加载bean
+     * 同一个单例同时只有一次异步创建，依赖的bean并行地异步创建，都完成后再创建此bean
+     * 创建在容器的默认Executor中执行（与@Async共用），失败时future以创建时的异常结束
+     * @param name
+     * @return
+     */
+    CompletableFuture<Object> getBeanAsync(String name);
+
+    /**
+     * 根据类型异步获取bean，该类型必须唯一对应一个bean，见{@link #getBeanAsync(String)}
+     * @param beanType
+     * @param <T>
+     * @return
+     */
+    <T> CompletableFuture<T> getBeanAsync(Class<T> beanType);
+
+    /**
+     * 根据name和类型获取bean的handle，之后可以通过handle.get()以极低的开销反复获取该bean
+     * @param name
+     * @param beanType
+     * @param <T>
+     * @return
+     */
+    <T> BeanHandle<T> getBeanHandle(String name, Class<T> beanType) throws NoSuchBeanException;
+
+    /**
+     * 根据类型获取bean的handle，该类型必须唯一对应一个bean
+     * @param beanType
+     * @param <T>
+     * @return
+     */
+    <T> BeanHandle<T> getBeanHandle(Class<T> beanType) throws DuplicateBeanClassException, NoSuchBeanException;
+
     /**
      * 根据name获取相应的类型
      * @param name
@@ -39,7 +99,7 @@ public interface ApplicationContext {
     Class<?> getType(String name) throws NoSuchBeanException;
 
     /**
-     * 根据类型获取该类型对应的所有bean,比如一个接口和它的所有实现类，用map返回<beanName, Object>
+     * 根据类型获取该类型对应的所有bean,比如一个接口和它的所有实现类，用map返回<beanName, Object>，按@Order排序
      * @param beanType
      * @param <T>
      * @return
@@ -0,0 +1,22 @@
+package com.bytedance.spring.context;
+
+import com.bytedance.spring.ioc.bean.Provider;
+
+/**
+ * 预先解析好的bean引用，name和类型的检查在获取handle时一次性完成
+ * 对于已经创建好的单例，get()只是一次数组读取，适合在热点路径上反复获取bean
+ * @param <T>
+ */
+public interface BeanHandle<T> extends Provider<T> {
+
+    /**
+     * 获取handle指向的bean，懒加载的单例在第一次调用时创建，原型模式每次调用都会创建新的对象
+     * @return
+     */
+    @Override
+    T get() throws Exception;
+
+    String getBeanName();
+
+    Class<T> getBeanType();
+}
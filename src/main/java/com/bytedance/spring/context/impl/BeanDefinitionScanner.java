@@ -0,0 +1,346 @@
+package com.bytedance.spring.context.impl;
+
+import com.bytedance.spring.annotation.Bean;
+import com.bytedance.spring.context.BeanHandle;
+import com.bytedance.spring.exception.DuplicateBeanNameException;
+import com.bytedance.spring.ioc.annotation.*;
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import com.bytedance.spring.ioc.bean.BeanDefinitionRegistry;
+import com.bytedance.spring.ioc.bean.FieldAccessor;
+import com.bytedance.spring.ioc.bean.InjectionPoint;
+import com.bytedance.spring.ioc.bean.Provider;
+import com.bytedance.spring.ioc.tools.FieldAccessors;
+import com.bytedance.spring.ioc.tools.Instantiators;
+import com.bytedance.spring.ioc.tools.MyTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 扫描包中的类并解析为BeanDefinition，包括bean的构造器、需要注入的域以及配置类中的@Bean方法
+ * 只解析元数据，不创建任何对象，运行时的容器和构建时生成代码的工具共用这一套扫描逻辑
+ * 类和@Bean方法上的条件注解在注册前求值，条件不满足的bean不会出现在注册表中，也不会被创建和注入
+ * 标注了@Lazy的类只登记类上的注解，构造器、注入点和@PreDestroy方法在第一次创建时才通过{@link #resolve}解析，
+ * 用不到的懒加载bean不会在启动时反射，也不会留下反射的缓存
+ */
+public class BeanDefinitionScanner {
+
+    private final BeanDefinitionRegistry registry;
+
+    private final Environment environment;
+
+    // 扫描过程中加载的所有类，包括没有成为bean的类
+    private final Set<Class<?>> scannedClasses = new LinkedHashSet<>();
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public BeanDefinitionScanner(BeanDefinitionRegistry registry, Environment environment) {
+        this.registry = registry;
+        this.environment = environment;
+    }
+
+    /**
+     * 扫描一个包，将其中带有@Component、@Repository、@Service、@Controller、@Configuration注解的类注册为BeanDefinition
+     * @param basePackage
+     */
+    public void scan(String basePackage) throws DuplicateBeanNameException, IllegalAccessException {
+        scan(basePackage, false);
+    }
+
+    /**
+     * 再次扫描一个包，只注册注册表中还没有的类，已经注册过的类（包括其中的@Bean方法）直接跳过
+     * 用于容器启动后增量地加入新的组件
+     * @param basePackage
+     */
+    public void scanNew(String basePackage) throws DuplicateBeanNameException, IllegalAccessException {
+        scan(basePackage, true);
+    }
+
+    private void scan(String basePackage, boolean skipRegistered) throws DuplicateBeanNameException, IllegalAccessException {
+        //1、获取包下的所有类
+        Set<Class<?>> classes = MyTools.getClasses(basePackage);
+        scannedClasses.addAll(classes);
+        for (Class<?> clazz : classes) {
+            if (clazz.isAnnotation() || (skipRegistered && registry.findByClass(clazz) != null)) {     //自定义的组件注解本身不是bean
+                continue;
+            }
+            //2、遍历这些类，一次遍历得到类上与bean有关的注解
+            final TypeAnnotations annotations = TypeAnnotations.of(clazz);
+            String beanName = annotations.beanName;
+            if (beanName != null && annotations.conditional && !environment.matches(clazz)) {
+                logger.info("条件不满足，跳过bean：{}", clazz.getName());
+                continue;
+            }
+            if (beanName != null) {      //如果此类带了@Component、@Repository、@Service、@Controller、@Configuration或者自定义的组件注解
+                beanName = checkBeanName(beanName, clazz);
+                //3、将这些类封装成BeanDefinition，装载到集合中
+                boolean singleton = true;
+                if (annotations.scope != null) {
+                    if ("prototype".equals(annotations.scope)) {        //指定为非单例模式321
+                        singleton = false;
+                    } else if (!"singleton".equals(annotations.scope)) { //非法值
+                        throw new IllegalStateException();
+                    }
+                }
+                BeanDefinition beanDefinition = new BeanDefinition(beanName, clazz, annotations.lazy, singleton);
+                if (annotations.order != null) {
+                    beanDefinition.setOrder(annotations.order);
+                }
+                if (annotations.idleTimeout != null) {
+                    if (!singleton || annotations.idleTimeout <= 0) {
+                        throw new IllegalStateException(clazz.getName() + "：@ExpireAfterIdle只能用于单例bean，且空闲时间必须大于0");
+                    }
+                    beanDefinition.setIdleTimeout(annotations.idleTimeout);
+                }
+                if (annotations.lazy && !annotations.configuration) {
+                    beanDefinition.setResolved(false);
+                } else {
+                    resolve(beanDefinition);
+                }
+                //确保对所有的beanDefinition都有记录
+                registry.register(beanDefinition, true);
+                if (annotations.configuration) {
+                    findFactoryMethods(beanDefinition);
+                }
+            }
+        }
+        logger.info("扫描package:[{}]完成",basePackage);
+    }
+
+    public Set<Class<?>> getScannedClasses() {
+        return scannedClasses;
+    }
+
+    /**
+     * 解析扫描得到的bean的@PreDestroy方法、构造器以及需要注入的域，不改变BeanDefinition的resolved标记，
+     * 推迟解析的bean由调用方检查解析结果后再标记为已解析
+     * @param beanDefinition
+     */
+    public static void resolve(BeanDefinition beanDefinition) throws IllegalAccessException {
+        resolveDestroyMethod(beanDefinition);
+        resolveConstructor(beanDefinition);
+        resolveFields(beanDefinition);
+    }
+
+    private String checkBeanName (String beanName, Class<?> clazz) throws DuplicateBeanNameException {
+        if ("".equals(beanName)) {    //没有添加beanName则默认是类的首字母小写
+            //获取类名首字母小写
+            String className = clazz.getName().replaceAll(clazz.getPackage().getName() + ".", "");
+            beanName = className.substring(0, 1).toLowerCase() + className.substring(1);
+        }
+        if (registry.idOf(beanName) >= 0) {
+            throw new DuplicateBeanNameException(beanName);
+        }
+        return beanName;
+    }
+
+    /**
+     * 在类及其父类中查找标注了@PreDestroy的无参方法，子类中的优先
+     * @param beanDefinition
+     */
+    private static void resolveDestroyMethod(BeanDefinition beanDefinition) {
+        for (Class<?> c = beanDefinition.getBeanClass(); c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getAnnotation(PreDestroy.class) != null) {
+                    if (method.getParameterCount() != 0) {
+                        throw new IllegalStateException(method + "：@PreDestroy方法不能有参数");
+                    }
+                    beanDefinition.setDestroyMethod(method);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 确定创建bean使用的构造器：
+     * 优先使用标注了@Autowired的构造器，其次是public的无参构造器，再次是类中唯一的构造器
+     * 构造器的参数在创建对象时从容器中解析，参数上可以使用@Qualifier和@Value
+     * @param beanDefinition
+     */
+    private static void resolveConstructor(BeanDefinition beanDefinition) throws IllegalAccessException {
+        final Class<?> clazz = beanDefinition.getBeanClass();
+        final Constructor<?>[] constructors = clazz.getDeclaredConstructors();
+        Constructor<?> constructor = null;
+        // 在已经取得的构造器中找public的无参构造器，不再调用getConstructor()，它会在Class中另外缓存一份public构造器
+        Constructor<?> publicNoArgs = null;
+        for (Constructor<?> candidate : constructors) {
+            if (candidate.getAnnotation(Autowired.class) != null) {
+                if (constructor != null) {      //只允许一个构造器标注@Autowired
+                    throw new IllegalStateException(clazz.getName() + "有多个标注了@Autowired的构造器");
+                }
+                constructor = candidate;
+            } else if (candidate.getParameterCount() == 0 && Modifier.isPublic(candidate.getModifiers())) {
+                publicNoArgs = candidate;
+            }
+        }
+        if (constructor == null) {
+            constructor = publicNoArgs;
+        }
+        if (constructor == null) {
+            if (constructors.length != 1) {
+                throw new IllegalStateException(clazz.getName() + "没有可用的构造器，请提供无参构造器或者在构造器上标注@Autowired");
+            }
+            constructor = constructors[0];
+        }
+        beanDefinition.setConstructorArguments(resolveParameters(constructor.getParameterTypes(),
+                constructor.getGenericParameterTypes(), constructor.getParameterAnnotations(), clazz.getName() + "构造器", 0));
+        beanDefinition.setConstructorOrFactoryMethod(constructor);
+        beanDefinition.setInstantiator(Instantiators.forConstructor(constructor));
+    }
+
+    /**
+     * 将构造器或者@Bean方法的参数转换为InjectionPoint
+     * @param parameterTypes
+     * @param genericParameterTypes
+     * @param parameterAnnotations
+     * @param owner 参数所属的构造器或者方法的描述
+     * @param offset 返回的数组中前offset个位置留给调用方填充
+     * @return
+     */
+    private static InjectionPoint[] resolveParameters(Class<?>[] parameterTypes, Type[] genericParameterTypes, Annotation[][] parameterAnnotations, String owner, int offset) {
+        if (offset + parameterTypes.length == 0) {
+            return BeanDefinition.NO_INJECTION_POINTS;
+        }
+        final InjectionPoint[] arguments = new InjectionPoint[offset + parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            String qualifier = null;
+            String value = null;
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof Qualifier) {
+                    qualifier = ((Qualifier) annotation).value();
+                } else if (annotation instanceof Value) {
+                    value = ((Value) annotation).value();
+                }
+            }
+            arguments[offset + i] = injectionPoint(null, parameterTypes[i], genericParameterTypes[i], qualifier, value, owner + "的第" + i + "个参数");
+        }
+        return arguments;
+    }
+
+    /**
+     * 根据声明的类型确定注入方式，Provider&lt;T&gt;和BeanHandle&lt;T&gt;注入的是T的handle，
+     * 没有@Qualifier的List&lt;T&gt;、Collection&lt;T&gt;、T[]、Map&lt;String, T&gt;注入所有T类型的bean
+     * @return
+     */
+    private static InjectionPoint injectionPoint(Field field, Class<?> type, Type genericType, String qualifier, String value, String description) {
+        if (value != null) {
+            return new InjectionPoint(InjectionPoint.Kind.BEAN, field, accessor(field), type, type, qualifier, value, description);
+        }
+        if (type == Provider.class || type == BeanHandle.class) {
+            return new InjectionPoint(InjectionPoint.Kind.PROVIDER, field, accessor(field), type,
+                    typeArgument(genericType, 0, description, "Provider<UserService>"), qualifier, null, description);
+        }
+        if (qualifier == null) {
+            if (type == List.class || type == Collection.class) {
+                return new InjectionPoint(InjectionPoint.Kind.LIST, field, accessor(field), type,
+                        typeArgument(genericType, 0, description, "List<Handler>"), null, null, description);
+            }
+            if (type.isArray() && !type.getComponentType().isPrimitive()) {
+                return new InjectionPoint(InjectionPoint.Kind.ARRAY, field, accessor(field), type,
+                        type.getComponentType(), null, null, description);
+            }
+            if (type == Map.class) {
+                if (typeArgument(genericType, 0, description, "Map<String, Handler>") != String.class) {
+                    throw new IllegalStateException(description + "的key必须是String类型的beanName");
+                }
+                return new InjectionPoint(InjectionPoint.Kind.MAP, field, accessor(field), type,
+                        typeArgument(genericType, 1, description, "Map<String, Handler>"), null, null, description);
+            }
+        }
+        return new InjectionPoint(InjectionPoint.Kind.BEAN, field, accessor(field), type, type, qualifier, null, description);
+    }
+
+    /**
+     * 获取泛型类型的第index个类型参数，类型参数本身是泛型时取其原始类型
+     */
+    private static Class<?> typeArgument(Type genericType, int index, String description, String example) {
+        if (genericType instanceof ParameterizedType) {
+            final Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[index];
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            } else if (argument instanceof ParameterizedType) {
+                return (Class<?>) ((ParameterizedType) argument).getRawType();
+            }
+        }
+        throw new IllegalStateException(description + "需要声明具体的泛型类型，例如" + example);
+    }
+
+    private static FieldAccessor accessor(Field field) {
+        return field == null ? null : FieldAccessors.forField(field);
+    }
+
+    /**
+     * 记录需要注入的域：标注了@Value的域在实例化后赋值，标注了@Autowired的域在注入阶段赋值
+     * @param beanDefinition
+     */
+    private static void resolveFields(BeanDefinition beanDefinition) {
+        final Class<?> clazz = beanDefinition.getBeanClass();
+        final List<InjectionPoint> injectionPoints = new ArrayList<>();
+        for (Field field : clazz.getDeclaredFields()) {
+            final Value value = field.getAnnotation(Value.class);
+            final Autowired autowired = field.getAnnotation(Autowired.class);
+            if (value == null && autowired == null) {
+                continue;
+            }
+            final Qualifier qualifier = field.getAnnotation(Qualifier.class);
+            injectionPoints.add(injectionPoint(field, field.getType(), field.getGenericType(), qualifier == null ? null : qualifier.value(),
+                    value == null ? null : value.value(), clazz.getName() + "." + field.getName()));
+        }
+        beanDefinition.setFieldInjectionPoints(injectionPoints.isEmpty()
+                ? BeanDefinition.NO_INJECTION_POINTS : injectionPoints.toArray(new InjectionPoint[0]));
+    }
+
+    /**
+     * 将配置类中标注了@Bean的方法注册为BeanDefinition，方法的返回结果即为bean
+     * 配置类的对象作为方法调用的第一个参数，方法本身的参数与构造器参数一样从容器中解析
+     * @param configDefinition
+     */
+    private void findFactoryMethods(BeanDefinition configDefinition) throws DuplicateBeanNameException, IllegalAccessException {
+        final Class<?> clazz = configDefinition.getBeanClass();
+        for (Method method : clazz.getDeclaredMethods()) {
+            final Bean bean = method.getAnnotation(Bean.class);
+            if (bean == null) {
+                continue;
+            }
+            if (!environment.matches(method)) {
+                logger.info("条件不满足，跳过@Bean方法：{}.{}", clazz.getName(), method.getName());
+                continue;
+            }
+            String beanName = bean.name();
+            if ("".equals(beanName)) {
+                beanName = method.getName();
+            }
+            if (registry.idOf(beanName) >= 0) {
+                throw new DuplicateBeanNameException(beanName);
+            }
+            final String owner = clazz.getName() + "." + method.getName();
+            final InjectionPoint[] arguments = resolveParameters(method.getParameterTypes(), method.getGenericParameterTypes(),
+                    method.getParameterAnnotations(), owner, 1);
+            arguments[0] = new InjectionPoint(clazz, configDefinition.getBeanName(), null, owner + "所在的配置类");
+            final BeanDefinition beanDefinition = new BeanDefinition(beanName, method.getReturnType(), false, true);
+            beanDefinition.setFactoryBeanName(configDefinition.getBeanName());
+            final Order order = method.getAnnotation(Order.class);
+            if (order != null) {
+                beanDefinition.setOrder(order.value());
+            }
+            beanDefinition.setConstructorArguments(arguments);
+            beanDefinition.setConstructorOrFactoryMethod(method);
+            beanDefinition.setInstantiator(Instantiators.forFactoryMethod(method));
+            registry.register(beanDefinition, false);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.bytedance.spring.context.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 已经启动的容器的缓存，以配置文件和扫描的包为key，同一个配置的容器只启动一次，之后直接复用
+ * 主要用于测试：每个测试类都需要容器时，不必每次都重新扫描包、创建所有单例
+ * 按最近使用的顺序淘汰，超过容量时关闭最久没有使用的容器；正在启动、或者还有线程在等待它启动完成的容器不会被淘汰，
+ * 没有可以淘汰的容器时暂时超出容量，下次启动新的容器时再淘汰；修改了bean状态的测试应当调用markDirty，下次获取时重新启动
+ * 容器启动时读取过的系统属性（-Dkey=value，例如激活的profile、条件注解的配置项）与当前的值不同时，缓存的容器不再适用，
+ * 获取时关闭并重新启动；配置文件的内容变化不会被发现，修改配置文件后需要调用markDirty
+ */
+public class ContextCache {
+
+    // 默认缓存的容量，通过系统属性设置
+    public static final String MAX_SIZE = "summer.context.cache.max-size";
+
+    private static final ContextCache DEFAULT = new ContextCache(Integer.getInteger(MAX_SIZE, 32));
+
+    private final int maxSize;
+
+    // 按访问顺序排列，最久没有使用的在最前面；正在启动的容器也在其中，同一个key的其它线程等待它的future
+    private final LinkedHashMap<Key, Entry> contexts = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hitCount;
+
+    private long missCount;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public ContextCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize必须大于0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 进程内共享的缓存
+     * @return
+     */
+    public static ContextCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 获取相同配置的容器，没有时启动一个新的容器并放入缓存
+     * 锁只在查找、登记时持有，启动过程在锁外进行：多个线程同时获取同一个配置时只有一个线程启动，其它线程等待它的结果，
+     * 获取其它配置的线程不受影响；启动失败时移除登记，下次获取时重新启动
+     * @param propertyFile 没有配置文件时为null
+     * @param basePackages
+     * @return
+     */
+    public DefaultApplicationContext get(String propertyFile, String... basePackages) throws Exception {
+        final Key key = new Key(propertyFile, basePackages);
+        final Entry entry;
+        final boolean created;
+        final List<CompletableFuture<DefaultApplicationContext>> closing = new ArrayList<>();
+        synchronized (this) {
+            final Entry cached = contexts.get(key);
+            if (cached != null && !isStale(cached.future)) {
+                hitCount++;
+                entry = cached;
+                created = false;
+                if (!entry.future.isDone()) {
+                    entry.waiters++;
+                }
+            } else {
+                if (cached != null) {
+                    logger.info("系统属性已经变化，重新启动容器：{}", key);
+                    closing.add(contexts.remove(key).future);
+                }
+                missCount++;
+                entry = new Entry();
+                created = true;
+                contexts.put(key, entry);
+                evict(closing);
+            }
+        }
+        closeAll(closing);
+        if (!created) {
+            return entry.future.isDone() ? join(entry.future) : await(key, entry);
+        }
+        final DefaultApplicationContext context;
+        try {
+            context = new DefaultApplicationContext(propertyFile, basePackages);
+        } catch (Exception e) {
+            synchronized (this) {
+                contexts.remove(key, entry);
+            }
+            entry.future.completeExceptionally(e);
+            throw e;
+        }
+        entry.future.complete(context);
+        return context;
+    }
+
+    /**
+     * 超过容量时按最近使用的顺序淘汰已经启动完成、且没有线程在等待的容器，被淘汰的容器放入closing，在锁外关闭
+     */
+    private void evict(List<CompletableFuture<DefaultApplicationContext>> closing) {
+        final Iterator<Map.Entry<Key, Entry>> iterator = contexts.entrySet().iterator();
+        while (contexts.size() > maxSize && iterator.hasNext()) {
+            final Map.Entry<Key, Entry> eldest = iterator.next();
+            final Entry entry = eldest.getValue();
+            if (entry.future.isDone() && entry.waiters == 0) {
+                iterator.remove();
+                logger.info("容器缓存已满，关闭最久没有使用的容器：{}", eldest.getKey());
+                closing.add(entry.future);
+            }
+        }
+    }
+
+    /**
+     * 等待同一个配置的容器启动完成，启动失败时抛出启动时的异常
+     * 等待期间容器被markDirty、clear移出了缓存时，它会在启动完成后被关闭，重新获取
+     */
+    private DefaultApplicationContext await(Key key, Entry entry) throws Exception {
+        final DefaultApplicationContext context;
+        try {
+            context = join(entry.future);
+        } finally {
+            synchronized (this) {
+                entry.waiters--;
+            }
+        }
+        synchronized (this) {
+            if (contexts.get(key) == entry) {
+                return context;
+            }
+        }
+        return get(key.propertyFile, key.basePackages);
+    }
+
+    private static DefaultApplicationContext join(CompletableFuture<DefaultApplicationContext> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 已经启动完成、且启动后读取过的系统属性发生了变化
+     */
+    private static boolean isStale(CompletableFuture<DefaultApplicationContext> future) {
+        return future.isDone() && !future.isCompletedExceptionally()
+                && future.join().getEnvironment().systemPropertiesChanged();
+    }
+
+    /**
+     * 在锁外关闭移出缓存的容器，正在启动的容器在启动完成后关闭
+     */
+    private static void closeAll(List<CompletableFuture<DefaultApplicationContext>> futures) {
+        for (CompletableFuture<DefaultApplicationContext> future : futures) {
+            future.thenAccept(DefaultApplicationContext::close);
+        }
+    }
+
+    /**
+     * 标记此配置的容器已经被修改，关闭并移出缓存，下次获取时重新启动
+     * @param propertyFile
+     * @param basePackages
+     */
+    public void markDirty(String propertyFile, String... basePackages) {
+        final Entry entry;
+        synchronized (this) {
+            entry = contexts.remove(new Key(propertyFile, basePackages));
+        }
+        if (entry != null) {
+            entry.future.thenAccept(DefaultApplicationContext::close);
+        }
+    }
+
+    /**
+     * 标记某个容器已经被修改，关闭并移出缓存
+     * @param context
+     */
+    public void markDirty(DefaultApplicationContext context) {
+        boolean removed = false;
+        synchronized (this) {
+            final Iterator<Entry> iterator = contexts.values().iterator();
+            while (iterator.hasNext()) {
+                final CompletableFuture<DefaultApplicationContext> future = iterator.next().future;
+                if (future.isDone() && !future.isCompletedExceptionally() && future.join() == context) {
+                    iterator.remove();
+                    removed = true;
+                    break;
+                }
+            }
+        }
+        if (removed) {
+            context.close();
+        }
+    }
+
+    /**
+     * 关闭并移除所有缓存的容器
+     */
+    public void clear() {
+        final List<CompletableFuture<DefaultApplicationContext>> closing;
+        synchronized (this) {
+            closing = new ArrayList<>(contexts.size());
+            for (Entry entry : contexts.values()) {
+                closing.add(entry.future);
+            }
+            contexts.clear();
+        }
+        closeAll(closing);
+    }
+
+    public synchronized int size() {
+        return contexts.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 缓存中的一个容器，正在启动时future还没有完成
+     */
+    private static final class Entry {
+        private final CompletableFuture<DefaultApplicationContext> future = new CompletableFuture<>();
+
+        // 正在等待启动完成的线程数，由缓存的锁保护，大于0时不会被淘汰
+        private int waiters;
+    }
+
+    /**
+     * 缓存的key，扫描的包的顺序不同时创建的bean的顺序也不同，所以按顺序比较
+     */
+    private static final class Key {
+        private final String propertyFile;
+        private final String[] basePackages;
+
+        Key(String propertyFile, String[] basePackages) {
+            this.propertyFile = propertyFile;
+            this.basePackages = basePackages.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return Objects.equals(propertyFile, key.propertyFile) && Arrays.equals(basePackages, key.basePackages);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(propertyFile) + Arrays.hashCode(basePackages);
+        }
+
+        @Override
+        public String toString() {
+            return "propertyFile=" + propertyFile + ", basePackages=" + Arrays.toString(basePackages);
+        }
+    }
+}
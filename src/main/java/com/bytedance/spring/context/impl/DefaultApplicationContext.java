@@ -1,31 +1,60 @@
 package com.bytedance.spring.context.impl;
 
-import com.bytedance.spring.annotation.Bean;
-import com.bytedance.spring.annotation.Configuration;
+import com.bytedance.spring.aop.InterceptorFactory;
+import com.bytedance.spring.aot.AppCds;
+import com.bytedance.spring.aop.ProxyFactory;
+import com.bytedance.spring.aop.async.AsyncInterceptorFactory;
+import com.bytedance.spring.aop.cache.CacheManager;
+import com.bytedance.spring.aop.cache.CacheStats;
+import com.bytedance.spring.aop.metrics.LatencySnapshot;
+import com.bytedance.spring.aop.metrics.MetricsRegistry;
 import com.bytedance.spring.context.ApplicationContext;
+import com.bytedance.spring.context.BeanHandle;
+import com.bytedance.spring.exception.BeanCurrentlyInCreationException;
 import com.bytedance.spring.exception.DataConversionException;
 import com.bytedance.spring.exception.DuplicateBeanClassException;
 import com.bytedance.spring.exception.DuplicateBeanNameException;
 import com.bytedance.spring.exception.NoSuchBeanException;
+import com.bytedance.spring.exception.UnsatisfiedDependencyException;
 import com.bytedance.spring.extension.Extension;
-import com.bytedance.spring.ioc.annotation.*;
 import com.bytedance.spring.ioc.bean.BeanDefinition;
-import com.bytedance.spring.ioc.tools.MyTools;
+import com.bytedance.spring.ioc.bean.BeanDefinitionRegistry;
+import com.bytedance.spring.ioc.bean.FieldAccessor;
+import com.bytedance.spring.ioc.bean.InjectionPoint;
+import com.bytedance.spring.ioc.tools.DependencyGraph;
+import com.bytedance.spring.ioc.tools.DependencyReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Executable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class DefaultApplicationContext implements ApplicationContext {
+public class DefaultApplicationContext implements ApplicationContext, AutoCloseable {
 
     // 一级缓存，存放的是最终的对象
-    // 缓存ioc里面的对象，key：beanName, value：object
-    private final Map<String, Object> iocByName = new ConcurrentHashMap<>(256);
+    // 按bean在registry中的id存放单例对象，通过BeanHandle获取时只需一次数组读取
+    private volatile AtomicReferenceArray<Object> singletonObjects = new AtomicReferenceArray<>(256);
 
     // 二级缓存，存放半成品对象
     private final Map<String, Object> earlyRealObjects = new ConcurrentHashMap<>(256);
@@ -33,34 +62,98 @@ public class DefaultApplicationContext implements ApplicationContext {
     // 二级缓存，存放半成品的代理对象
     private final Map<String, Object> earlyProxyObjects = new ConcurrentHashMap<>(16);
 
-    // 保存所有的beanDefinition
-    private final Set<BeanDefinition> beanDefinitions = new HashSet<>(256);
+    // 当前线程正在构造中的bean，用于发现提前暴露也无法解决的循环依赖（构造器注入、原型模式）
+    private final ThreadLocal<Set<String>> beansInCreation = ThreadLocal.withInitial(HashSet::new);
 
-    // 保存此ioc容器中所有对象的beanName和beanDefinition的对应关系
-    private final Map<String, BeanDefinition> allBeansByName = new HashMap<>();
+    // 正在创建的单例，按创建组登记，创建组 -> 登记；持有登记的线程创建组内的bean，其它线程获取组内的bean时等待它完成
+    // 不同组的bean由各自的线程同时创建，互不等待
+    private final Map<Integer, CreationClaim> creations = new ConcurrentHashMap<>();
 
-    // 保存此ioc容器中所有对象的beanType和beanDefinition的对应关系
-    private final Map<Class<?>, BeanDefinition> allBeansByType = new HashMap<>();
+    // 正在等待其它线程创建bean的线程 -> 它等待的登记，用于发现线程之间互相等待对方正在创建的bean
+    private final Map<Thread, CreationClaim> waitingCreations = new ConcurrentHashMap<>();
 
-    // 保存bean的type和name的对应关系，采用缓存的形式存在
-    private final Map<Class<?>, Set<String>> beanTypeAndName = new HashMap<>();
+    // 按id记录bean所在的创建组：可以通过提前暴露解决的循环依赖中的bean属于同一组（组内最小的id），由一个线程一起创建，其它bean自成一组
+    // 数组只覆盖到最后一个在循环依赖中的bean，之后的bean都自成一组
+    private volatile int[] creationGroups = new int[0];
+
+    // 二级缓存和等待关系的锁，只在读写它们时短暂持有，实例化和注入时不持有
+    private final ReentrantLock earlyObjectsLock = new ReentrantLock();
+
+    // 增量扫描以及启动后台任务的锁，多次scan依次进行；扫描包、加载类和校验依赖图时只持有此锁，不影响其它bean的创建
+    private final ReentrantLock scanLock = new ReentrantLock();
+
+    // 懒加载bean第一次创建前解析注入信息的锁，解析结果、代理、创建组和依赖图的检查结果一起更新；
+    // scan在复制代理到替换注册表期间也持有此锁，持有时不会等待其它锁或者bean的创建
+    private final ReentrantLock resolveLock = new ReentrantLock();
+
+    // start是否已经调用过
+    private boolean started;
+
+    // 保存所有的beanDefinition，以及beanName、beanType到beanDefinition的索引，启动完成后冻结
+    private volatile BeanDefinitionRegistry registry = new BeanDefinitionRegistry();
+
+    // 标注了@ExpireAfterIdle的单例bean，由后台线程定期检查是否空闲
+    private volatile List<BeanDefinition> expiringBeans = Collections.emptyList();
+
+    // 按id记录会过期的bean最近一次被访问时的idleClock，值没有变化时不写，访问的开销只是一次读取
+    private volatile AtomicLongArray lastAccess = new AtomicLongArray(0);
+
+    // 由清理线程每次检查时推进的粗粒度时钟（毫秒），访问bean时不需要读取系统时间
+    private volatile long idleClock;
+
+    private ScheduledExecutorService idleReaper;
+
+    private ScheduledFuture<?> idleReaperTask;
+
+    // 会过期的bean的作用域代理，注入到其它bean中，beanName -> 代理对象
+    private final Map<String, Object> scopedProxies = new ConcurrentHashMap<>();
+
+    // 会过期的单例当前的对象及通过作用域代理正在进行的调用数，id -> lease，与一级缓存同时更新
+    private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+
+    // 已经移出一级缓存、还有调用没有结束的对象，调用全部结束后才调用@PreDestroy
+    private final Queue<Lease> retiredLeases = new ConcurrentLinkedQueue<>();
+
+    // 扫描包时加载的所有类，用于写出AppCDS的class list；用数组而不是LinkedHashSet保存，不为每个类多一个节点，读写时锁住它本身
+    private final ArrayList<Class<?>> scannedClasses = new ArrayList<>();
+
+    // 正在异步获取的单例，同一个bean的多次getBeanAsync共用一个future，id -> future
+    private final Map<Integer, CompletableFuture<Object>> asyncCreations = new ConcurrentHashMap<>();
 
     // 保存所有类和切它的切面方法的集合
     private final Map<Class<?>, Set<Method>> aspect = new HashMap<>();
 
+    // @Cacheable方法的缓存
+    private final CacheManager cacheManager = new CacheManager();
+
+    // 方法的耗时统计
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry(this);
+
+    // @Async方法的拦截器，关闭容器时需要停止它创建的默认线程池
+    private final AsyncInterceptorFactory asyncInterceptorFactory = new AsyncInterceptorFactory(this);
+
+    // 根据方法上的注解生成拦截器，按此顺序由外到内执行；耗时统计在最内层，统计的是方法本身（异步方法在工作线程中）的耗时
+    private final List<InterceptorFactory> interceptorFactories = Arrays.asList(cacheManager, asyncInterceptorFactory, metricsRegistry);
+
+    // 按bean的id存放创建代理的ProxyFactory，不需要代理的bean为null；数组只覆盖到最后一个需要代理的bean
+    private volatile ProxyFactory[] proxyFactories = new ProxyFactory[0];
+
     // 对外扩展接口实现类的对象
     private List<? extends Extension> extensions = new ArrayList<>();
 
     // property配置文件的位置
     private final String propertyFile;
 
-    // 记录了所有注解对应所有标注了这个注解的类
-    private Map<Class<?>, List<Class<?>>> annotationType2Clazz = new HashMap<>();
+    // 由配置文件和系统属性构成的运行环境，用于条件注解的求值
+    private final Environment environment;
 
 
     // 标注了needBeProxyed中的注解的类需要被代理
     private List<Class<?>> needBeProxyed = new ArrayList<>();
 
+    // 启动时依赖图的检查结果
+    private volatile DependencyReport dependencyReport;
+
     // 记录关键位置的日志
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -74,91 +167,414 @@ public class DefaultApplicationContext implements ApplicationContext {
 
     /**
      * 加载的时候就扫描并创建对象，需要加载配置文件
+     * 子类需要在自己的构造器完成后调用{@link #start()}，见其说明
      * @param basePackages 需要被ioc管理的包
      */
     public DefaultApplicationContext(String propertyFile, String[] basePackages) throws Exception {
 
         this.propertyFile = propertyFile;
+        this.environment = Environment.load(propertyFile);
 
         //遍历包，找到目标类(原材料)
         findBeanDefinitions(basePackages);
+        refresh();
+        if (getClass() == DefaultApplicationContext.class) {
+            start();
+        }
+    }
+
+    /**
+     * 使用事先准备好的BeanDefinition创建容器，不扫描包
+     * 构建时生成的代码通过此构造器传入已经解析好的BeanDefinition，其中的instantiator和域的读写都是直接调用，不需要反射
+     * 此构造器不启动后台任务，子类在自己的构造器完成后调用{@link #start()}
+     * @param propertyFile
+     * @param beanDefinitions
+     */
+    protected DefaultApplicationContext(String propertyFile, List<BeanDefinition> beanDefinitions) throws Exception {
+
+        this.propertyFile = propertyFile;
+        this.environment = Environment.load(propertyFile);
+
+        for (BeanDefinition beanDefinition : beanDefinitions) {
+            registry.register(beanDefinition, beanDefinition.getFactoryBeanName() == null);
+        }
+        refresh();
+    }
+
+    private void refresh() throws Exception {
+        //解析需要代理的bean，对象实例化后立即代理，构造器注入拿到的也是代理对象
+        proxyFactories = createProxyFactories(registry, 0);
+        //在创建任何对象之前检查整个依赖图，一次性报告所有问题
+        validateDependencies();
         //根据原材料创建bean
-        createObject();
-        //先将需要代理的对象进行动态代理
-        proxyObject();
+        createObject(0);
         //自动装载并将切面类中的方法横切目标方法并装入ioc容器中
         autowireObject();
-        // 注入配置类
-        addConfig();
+        // 创建配置类中@Bean方法定义的bean
+        addConfig(0);
+        //启动完成，冻结注册表
+        registry.freeze();
+        //登记会在空闲后释放的@ExpireAfterIdle单例，清理线程在start中启动
+        registerExpiringBeans(0);
         //容器初始化日志
         logger.info("IOC容器初始化完成");
+        //按需写出启动时用到的类，用于生成AppCDS归档
+        final String classList = environment.getProperty(Environment.CDS_CLASS_LIST);
+        if (classList != null) {
+            try {
+                writeClassList(Paths.get(classList));
+            } catch (IOException e) {
+                logger.warn("写出class list失败：{}", classList, e);
+            }
+        }
+    }
+
+    /**
+     * 启动容器的后台任务：定期释放空闲的@ExpireAfterIdle单例，按配置在后台预热懒加载的单例bean
+     * 后台线程会访问容器本身，不能在构造器中启动，否则子类的构造器尚未完成时容器就被其它线程使用；
+     * DefaultApplicationContext自身的构造器最后会调用此方法，子类（包括构建时生成的容器）需要在自己的构造器完成后调用
+     * 重复调用没有影响
+     */
+    public void start() {
+        scanLock.lock();
+        try {
+            if (started) {
+                return;
+            }
+            started = true;
+            if (!expiringBeans.isEmpty()) {
+                scheduleIdleReaper();
+            }
+        } finally {
+            scanLock.unlock();
+        }
+        //按需在后台预热懒加载的单例bean，不阻塞容器启动
+        if (Boolean.parseBoolean(environment.getProperty(Environment.LAZY_WARMUP, "false"))) {
+            warmUpLazySingletons();
+        }
+    }
+
+    /**
+     * 容器启动后再次扫描包（可以是新加入classpath的插件jar），只注册、创建新出现的bean，已有的单例保持不变
+     * 新的bean先注册到注册表的副本中并校验整个依赖图，有问题时直接丢弃副本，容器不受影响；
+     * 校验通过后整体替换注册表，按类型查找的缓存只有新bean可以赋值给的类型发生变化
+     * 之后只实例化新的非懒加载单例和新的@Bean方法，它们依赖的已有bean直接从一级缓存中获取
+     * 整个过程只持有扫描锁，新bean与业务线程获取bean一样按创建组登记后创建，扫描期间其它bean的获取和创建不受影响
+     * 已有bean中已经注入的List、数组、Map不会包含新的bean
+     * @param classLoader 加载新类使用的类加载器，为null时使用当前线程的上下文类加载器
+     * @param basePackages
+     * @return 新注册的beanName
+     */
+    public List<String> scan(ClassLoader classLoader, String... basePackages) throws Exception {
+        scanLock.lock();
+        try {
+            // 只有scan会替换注册表，持有扫描锁时current不会变化
+            final BeanDefinitionRegistry current = registry;
+            final BeanDefinitionRegistry next = current.copy();
+            final BeanDefinitionScanner scanner = new BeanDefinitionScanner(next, environment);
+            final Thread thread = Thread.currentThread();
+            final ClassLoader contextClassLoader = thread.getContextClassLoader();
+            if (classLoader != null) {
+                thread.setContextClassLoader(classLoader);
+            }
+            try {
+                for (String basePackage : basePackages) {
+                    scanner.scanNew(basePackage);
+                }
+            } finally {
+                thread.setContextClassLoader(contextClassLoader);
+            }
+            addScannedClasses(scanner.getScannedClasses());
+            final int from = current.size();
+            final List<String> beanNames = new ArrayList<>(next.size() - from);
+            for (int id = from; id < next.size(); id++) {
+                beanNames.add(next.get(id).getBeanName());
+            }
+            if (beanNames.isEmpty()) {
+                return beanNames;
+            }
+            // 复制代理之后、替换注册表之前解析的懒加载bean的代理和创建组会丢失，所以期间不允许解析
+            resolveLock.lock();
+            try {
+                final ProxyFactory[] factories = createProxyFactories(next, from);
+                //新bean的依赖以及已有bean的按类型注入都可能受影响，校验通过前不替换注册表
+                final DependencyReport report = DependencyGraph.build(next, proxied(factories)).analyze();
+                if (!report.getProblems().isEmpty()) {
+                    throw new UnsatisfiedDependencyException(report.getProblems());
+                }
+                next.freeze();
+                // 最后替换注册表，看到新注册表的线程也能看到新bean的代理和创建组
+                dependencyReport = report;
+                creationGroups = creationGroupsOf(next, report);
+                proxyFactories = factories;
+                registry = next;
+            } finally {
+                resolveLock.unlock();
+            }
+            // 注册表已经替换，创建失败的bean在下次获取时重新创建
+            for (int id = from; id < next.size(); id++) {
+                final BeanDefinition beanDefinition = next.get(id);
+                if (!beanDefinition.getLazy() && beanDefinition.getSingleton()
+                        && beanDefinition.getFactoryBeanName() == null && getSingleton(id) == null) {
+                    getBean(beanDefinition);
+                }
+            }
+            addConfig(from);
+            registerExpiringBeans(from);
+            logger.info("增量扫描{}完成，新注册{}个bean：{}", Arrays.toString(basePackages), beanNames.size(), beanNames);
+            return beanNames;
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * 登记id从from开始的bean中标注了@ExpireAfterIdle的单例，已经start时重新安排清理线程的检查周期
+     * @param from
+     */
+    private void registerExpiringBeans(int from) {
+        final List<BeanDefinition> expiring = new ArrayList<>(expiringBeans);
+        for (int id = from; id < registry.size(); id++) {
+            if (registry.get(id).getIdleTimeout() > 0) {
+                expiring.add(registry.get(id));
+            }
+        }
+        if (expiring.size() == expiringBeans.size()) {
+            return;
+        }
+        idleClock = System.nanoTime() / 1000000;
+        final AtomicLongArray access = new AtomicLongArray(registry.size());
+        final AtomicLongArray old = lastAccess;
+        for (int id = 0; id < access.length(); id++) {
+            access.set(id, id < old.length() ? old.get(id) : idleClock);
+        }
+        lastAccess = access;
+        expiringBeans = Collections.unmodifiableList(expiring);
+        if (started) {
+            scheduleIdleReaper();
+        }
+    }
+
+    /**
+     * 按所有会过期的bean中最短的空闲时间安排清理线程的检查周期，持有扫描锁时调用
+     * 检查周期是最短空闲时间的1/4（10ms到1s之间），bean最多在空闲时间之后再多存活一个周期
+     */
+    private void scheduleIdleReaper() {
+        final List<BeanDefinition> expiring = expiringBeans;
+        long minTimeout = Long.MAX_VALUE;
+        for (BeanDefinition beanDefinition : expiring) {
+            minTimeout = Math.min(minTimeout, beanDefinition.getIdleTimeout());
+        }
+        final long period = Math.max(10, Math.min(1000, minTimeout / 4));
+        if (idleReaper == null) {
+            idleReaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "summer-idle-reaper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            idleReaperTask.cancel(false);
+        }
+        idleReaperTask = idleReaper.scheduleWithFixedDelay(this::releaseIdleBeans, period, period, TimeUnit.MILLISECONDS);
+        logger.info("{}个bean空闲后会被释放，每{}ms检查一次", expiring.size(), period);
+    }
+
+    /**
+     * 推进idleClock，释放空闲时间超过@ExpireAfterIdle的单例并调用它的@PreDestroy方法
+     * 先登记bean所在的创建组，再次检查后才从一级缓存中移除，与同时进行的重新创建互斥；组内有bean正在创建时跳过，下次再检查；
+     * 移除的对象先退役，通过作用域代理进行中的调用全部结束后（可能在之后的某次检查中）才调用@PreDestroy；
+     * 通过getBean直接拿到的对象不计入调用数，所以不要长期持有会过期的bean
+     */
+    private void releaseIdleBeans() {
+        final long now = idleClock = System.nanoTime() / 1000000;
+        final AtomicLongArray access = lastAccess;
+        for (BeanDefinition beanDefinition : expiringBeans) {
+            final int id = beanDefinition.getId();
+            if (getSingleton(id) == null || now - access.get(id) < beanDefinition.getIdleTimeout()) {
+                continue;
+            }
+            final int group = creationGroupOf(id);
+            final CreationClaim claim = new CreationClaim();
+            if (creations.putIfAbsent(group, claim) != null) {
+                continue;
+            }
+            final Lease lease;
+            try {
+                if (getSingleton(id) == null || now - lastAccess.get(id) < beanDefinition.getIdleTimeout()) {
+                    continue;
+                }
+                lease = leases.remove(id);
+                lease.retired = true;
+                removeSingleton(id);
+            } finally {
+                releaseClaim(group, claim);
+            }
+            retiredLeases.add(lease);
+            logger.info("bean[{}]空闲超过{}ms，已释放", beanDefinition.getBeanName(), beanDefinition.getIdleTimeout());
+        }
+        for (Lease lease : retiredLeases) {
+            // close可能同时在销毁，只有移出队列的一方调用@PreDestroy
+            if (lease.calls.get() == 0 && retiredLeases.remove(lease)) {
+                destroyBean(lease.beanDefinition, lease.object);
+            }
+        }
+    }
+
+    /**
+     * 作用域代理的一次调用获取会过期的单例：先增加调用数再检查是否已经退役，已经退役时撤回并重新获取，
+     * 清理线程先标记退役再检查调用数，所以调用数归零之后不会再有调用使用这个对象
+     * @param beanDefinition
+     * @return
+     */
+    private Lease acquire(BeanDefinition beanDefinition) throws Exception {
+        final int id = beanDefinition.getId();
+        for (;;) {
+            final Lease lease = leases.get(id);
+            if (lease == null) {
+                getBean(beanDefinition);
+                continue;
+            }
+            lease.calls.incrementAndGet();
+            if (!lease.retired) {
+                touch(id);
+                return lease;
+            }
+            lease.release();
+        }
+    }
+
+    /**
+     * 调用bean的@PreDestroy方法，代理对象调用其目标对象的方法，失败时只记录日志
+     * @param beanDefinition
+     * @param object
+     */
+    private void destroyBean(BeanDefinition beanDefinition, Object object) {
+        final Method destroyMethod = beanDefinition.getDestroyMethod();
+        if (destroyMethod == null) {
+            return;
+        }
+        try {
+            destroyMethod.setAccessible(true);
+            destroyMethod.invoke(ProxyFactory.targetOf(object));
+        } catch (Exception e) {
+            logger.warn("bean[{}]的@PreDestroy方法执行失败", beanDefinition.getBeanName(),
+                    e instanceof InvocationTargetException ? e.getCause() : e);
+        }
+    }
+
+    /**
+     * 记录一次对会过期的bean的访问
+     * @param id
+     */
+    private void touch(int id) {
+        final AtomicLongArray access = lastAccess;
+        final long now = idleClock;
+        if (id < access.length() && access.get(id) != now) {
+            access.lazySet(id, now);
+        }
+    }
+
+    /**
+     * 使用当前线程的上下文类加载器再次扫描包，见{@link #scan(ClassLoader, String...)}
+     * @param basePackages
+     * @return 新注册的beanName
+     */
+    public List<String> scan(String... basePackages) throws Exception {
+        return scan(null, basePackages);
+    }
+
+    /**
+     * 在一个低优先级的后台线程中按@Order的顺序逐个创建尚未创建的懒加载单例bean
+     * 每个bean都通过getSingletonOrCreate登记后创建，与业务线程并发获取同一个bean时只会创建一次，
+     * 业务线程已经创建好的bean直接跳过；业务线程获取其它bean时不需要等待预热线程
+     */
+    private void warmUpLazySingletons() {
+        final List<BeanDefinition> lazySingletons = new ArrayList<>();
+        for (int id = 0; id < registry.size(); id++) {
+            final BeanDefinition beanDefinition = registry.get(id);
+            if (beanDefinition.getLazy() && beanDefinition.getSingleton() && getSingleton(id) == null) {
+                lazySingletons.add(beanDefinition);
+            }
+        }
+        if (lazySingletons.isEmpty()) {
+            return;
+        }
+        // 排序是稳定的，优先级相同时保持注册顺序
+        lazySingletons.sort(Comparator.comparingInt(BeanDefinition::getOrder));
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "summer-lazy-warmup");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.execute(() -> {
+            final long start = System.nanoTime();
+            for (BeanDefinition beanDefinition : lazySingletons) {
+                try {
+                    getSingletonOrCreate(beanDefinition);
+                } catch (Exception e) {
+                    // 预热失败不影响容器，第一次getBean时会重新创建并抛出异常
+                    logger.warn("懒加载bean[{}]预热失败", beanDefinition.getBeanName(), e);
+                }
+            }
+            logger.info("{}个懒加载bean预热完成，耗时{}ms", lazySingletons.size(), (System.nanoTime() - start) / 1000000);
+        });
+        executor.shutdown();
     }
 
-    private void findBeanDefinitions(String... basePackages) throws IllegalStateException, ClassNotFoundException, DuplicateBeanNameException {
+    private void findBeanDefinitions(String... basePackages) throws DuplicateBeanNameException, IllegalAccessException {
+        final BeanDefinitionScanner scanner = new BeanDefinitionScanner(registry, environment);
         for (String basePackage : basePackages) {
-            //1、获取包下的所有类
-            Set<Class<?>> classes = MyTools.getClasses(basePackage);
+            scanner.scan(basePackage);
+        }
+        addScannedClasses(scanner.getScannedClasses());
+    }
+
+    /**
+     * 记录扫描时加载的类，再次扫描同一个包时已经记录过的类不重复记录
+     * @param classes
+     */
+    private void addScannedClasses(Set<Class<?>> classes) {
+        synchronized (scannedClasses) {
+            final Set<Class<?>> known = new HashSet<>(scannedClasses);
             for (Class<?> clazz : classes) {
-                //2、遍历这些类，找到添加了注解的类
-                for (Annotation annotation : clazz.getAnnotations()) {
-                    List<Class<?>> clazzList = annotationType2Clazz.getOrDefault(annotation.annotationType(), new ArrayList<>());
-                    clazzList.add(clazz);
-                    annotationType2Clazz.put(annotation.annotationType(), clazzList);
-                }
-                Component componentAnnotation = clazz.getAnnotation(Component.class);
-                Repository repository = clazz.getAnnotation(Repository.class);
-                Service service = clazz.getAnnotation(Service.class);
-                Controller controller = clazz.getAnnotation(Controller.class);
-                final Configuration configuration = clazz.getAnnotation(Configuration.class);
-                String beanName = null;
-                if (componentAnnotation != null)    beanName = componentAnnotation.value();
-                if (repository != null)    beanName = repository.value();
-                if (service != null)    beanName = service.value();
-                if (controller != null)    beanName = controller.value();
-                if (configuration != null)  beanName = configuration.value();
-                if (beanName != null) {      //如果此类带了@Component、@Repository、@Service、@Controller注解之一
-                    beanName = checkBeanName(beanName, clazz);
-                    //3、将这些类封装成BeanDefinition，装载到集合中
-                    Boolean lazy = clazz.getAnnotation(Lazy.class) != null;
-                    boolean singleton = true;
-                    Scope scope = clazz.getAnnotation(Scope.class);
-                    if (scope != null) {
-                        String value = scope.value();
-                        if ("prototype".equals(value)) {        //指定为非单例模式321
-                            singleton = false;
-                        } else if (!"singleton".equals(value)) { //非法值
-                            throw new IllegalStateException();
-                        }
-                    }
-                    BeanDefinition beanDefinition = new BeanDefinition(beanName, clazz, lazy, singleton);
-                    //确保对所有的beanDefinition都有记录
-                    beanDefinitions.add(beanDefinition);
-                    allBeansByName.put(beanName, beanDefinition);
-                    allBeansByType.put(clazz, beanDefinition);
+                if (known.add(clazz)) {
+                    scannedClasses.add(clazz);
                 }
             }
-            logger.info("扫描package:[{}]完成",basePackage);
+            scannedClasses.trimToSize();
         }
     }
 
-    private String checkBeanName (String beanName, Class<?> clazz) throws DuplicateBeanNameException {
-        if ("".equals(beanName)) {    //没有添加beanName则默认是类的首字母小写
-            //获取类名首字母小写
-            String className = clazz.getName().replaceAll(clazz.getPackage().getName() + ".", "");
-            beanName = className.substring(0, 1).toLowerCase() + className.substring(1);
+    /**
+     * 根据所有BeanDefinition的注入信息构建完整的依赖图，找出缺失、不唯一的依赖以及无法解决的循环依赖
+     * 所有问题汇总后一起抛出，而不是等到注入时才逐个发现
+     */
+    private void validateDependencies() throws UnsatisfiedDependencyException {
+        dependencyReport = DependencyGraph.build(registry, proxied(proxyFactories)).analyze();
+        creationGroups = creationGroupsOf(registry, dependencyReport);
+        if (!dependencyReport.getCycles().isEmpty()) {
+            logger.info("存在可以通过提前暴露解决的循环依赖：{}", dependencyReport.getCycles());
         }
-        if (allBeansByName.containsKey(beanName)) {
-            throw new DuplicateBeanNameException(beanName);
+        logger.info("依赖图关键路径（长度{}）：{}", dependencyReport.getCriticalPath().size(), dependencyReport.getCriticalPath());
+        if (!dependencyReport.getProblems().isEmpty()) {
+            throw new UnsatisfiedDependencyException(dependencyReport.getProblems());
         }
-        return beanName;
     }
 
     /**
      * 对每个非懒加载且是单例模式bean创建对象
+     * @param from 从这个id开始，之前的bean已经处理过
      */
-    private void createObject() throws DataConversionException, DuplicateBeanNameException, NoSuchMethodException, IllegalAccessException, InstantiationException, InvocationTargetException {
-        for (BeanDefinition beanDefinition : beanDefinitions) {
-            if (!beanDefinition.getLazy() && beanDefinition.getSingleton()) {        //如果是懒加载模式则先不将其放到ioc容器中
+    private void createObject(int from) throws Exception {
+        for (int id = from; id < registry.size(); id++) {
+            BeanDefinition beanDefinition = registry.get(id);
+            if (!beanDefinition.getLazy() && beanDefinition.getSingleton()
+                    && beanDefinition.getFactoryBeanName() == null) {        //如果是懒加载模式则先不将其放到ioc容器中，@Bean方法在配置类注入完成后再调用
+                // 可能已经作为其它bean的构造器参数被提前创建了
+                if (getSingleton(id) != null || earlyRealObjects.containsKey(beanDefinition.getBeanName())) {
+                    continue;
+                }
                 createObject(beanDefinition);
             }
         }
@@ -169,51 +585,157 @@ public class DefaultApplicationContext implements ApplicationContext {
      * 为bean创建对象，如果有@Value注解则需要为其赋值
      * 为了防止忘记加set方法的问题，所以summer摒弃了spring的选择性的set方法注入，而是全局采用直接对属性设置访问权限并直接赋值
      * 如果是单例模式的创建则在检查完beanName和beanClass的冲突无误后加入IOC容器中，如果非单例则直接返回
+     * 构造器参数依赖的bean在此处先行获取，此时对象还不存在，无法提前暴露，所以构造器之间的循环依赖会抛出BeanCurrentlyInCreationException
      * @param beanDefinition
      * @return
      */
-    private Object createObject(BeanDefinition beanDefinition) throws DataConversionException, DuplicateBeanNameException, NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+    private Object createObject(BeanDefinition beanDefinition) throws Exception {
         Class<?> beanClass = beanDefinition.getBeanClass();
         String beanName = beanDefinition.getBeanName();
-        Object object = beanClass.getConstructor().newInstance();
+        final Set<String> inCreation = beansInCreation.get();
+        final boolean singleton = beanDefinition.getSingleton();
+        // 原型模式的bean在createBean中已经整体登记过了
+        if (singleton && !inCreation.add(beanName)) {
+            throw new BeanCurrentlyInCreationException(beanName);
+        }
+        Object object;
+        try {
+            final InjectionPoint[] arguments = beanDefinition.getConstructorArguments();
+            final Object[] args = new Object[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                args[i] = resolveDependency(beanDefinition, arguments[i]);
+            }
+            object = beanDefinition.getInstantiator().instantiate(args);
+        } finally {
+            if (singleton) {
+                inCreation.remove(beanName);
+            }
+        }
         //对对象的属性赋值
-        Field[] fields = beanClass.getDeclaredFields(); //拿到所有的域
-        for (Field field : fields) {
+        for (InjectionPoint injectionPoint : beanDefinition.getFieldInjectionPoints()) {
             //注入标记了@Value的值
-            Value annotation = field.getAnnotation(Value.class);
-            if (annotation != null) {
-                String value = annotation.value();
-                Object val = convertVal(value, field);
-                field.setAccessible(true);
-                field.set(object, val);
+            if (injectionPoint.getValue() != null) {
+                Object val = convertVal(injectionPoint.getValue(), injectionPoint.getType());
+                injectionPoint.getAccessor().set(object, val);
             }
         }
         if (beanDefinition.getSingleton()) {    //如果是单例模式则加入ioc容器中
-            if (earlyRealObjects.containsKey(beanName)) {
-                throw new DuplicateBeanNameException(beanName);
+            earlyObjectsLock.lock();
+            try {
+                if (earlyRealObjects.containsKey(beanName)) {
+                    throw new DuplicateBeanNameException(beanName);
+                }
+                //加入二级缓存的realObj中
+                earlyRealObjects.put(beanName, object);
+                //需要代理的对象提前暴露的是代理对象，注入仍然针对原对象
+                final Object proxy = proxyObject(beanDefinition, object);
+                if (proxy != object) {
+                    earlyProxyObjects.put(beanName, proxy);
+                }
+            } finally {
+                earlyObjectsLock.unlock();
             }
-            //加入二级缓存的realObj中
-            earlyRealObjects.put(beanName, object);
         }
         return object;
     }
 
 
+    /**
+     * 解析一个注入点需要的值
+     * Provider类型的注入点在此只解析出目标bean的id，并不创建目标bean
+     * @param owner 注入点所属的bean
+     * @param injectionPoint
+     * @return
+     */
+    private Object resolveDependency(BeanDefinition owner, InjectionPoint injectionPoint) throws Exception {
+        if (injectionPoint.getValue() != null) {
+            return convertVal(injectionPoint.getValue(), injectionPoint.getType());
+        }
+        if (injectionPoint.getKind().isCollection()) {
+            return resolveCollection(owner, injectionPoint);
+        }
+        if (injectionPoint.getKind() == InjectionPoint.Kind.PROVIDER) {
+            final String beanName = injectionPoint.getQualifier() != null
+                    ? injectionPoint.getQualifier() : getNameByType(injectionPoint.getDependencyType());
+            return getBeanHandle(beanName, injectionPoint.getDependencyType());
+        }
+        if (injectionPoint.getQualifier() != null) {
+            //根据beanName进行注入
+            return getInjectable(injectionPoint.getQualifier());
+        }
+        //根据beanType进行注入
+        return getInjectable(getNameByType(injectionPoint.getType()));
+    }
+
+    /**
+     * 获取用于注入的对象，会过期的bean注入作用域代理，不让注入方持有某一个具体的对象
+     * @param beanName
+     * @return
+     */
+    private Object getInjectable(String beanName) throws Exception {
+        final BeanDefinition beanDefinition = registry.find(beanName);
+        if (beanDefinition != null && beanDefinition.getIdleTimeout() > 0) {
+            final Object proxy = scopedProxies.get(beanName);
+            if (proxy != null) {
+                return proxy;
+            }
+            final Object created = ProxyFactory.scopedProxy(beanDefinition, () -> acquire(beanDefinition));
+            final Object existing = scopedProxies.putIfAbsent(beanName, created);
+            return existing != null ? existing : created;
+        }
+        return getObject(beanName);
+    }
+
+    /**
+     * 解析List、数组、Map类型的注入点：按@Order的顺序取出所有该类型的bean（不包括注入点所属的bean自身）放入一个数组，
+     * 数组即为注入的值，List和Map是在此数组之上的只读视图，遍历时与遍历数组一样不需要再查找容器
+     * 每个单例的注入点只在注入时解析一次
+     * @param owner
+     * @param injectionPoint
+     * @return
+     */
+    private Object resolveCollection(BeanDefinition owner, InjectionPoint injectionPoint) throws Exception {
+        final int[] ids = registry.orderedIdsAssignableTo(injectionPoint.getDependencyType());
+        int count = 0;
+        final Object[] beans = (Object[]) Array.newInstance(injectionPoint.getDependencyType(), ids.length);
+        final String[] names = new String[ids.length];
+        for (int id : ids) {
+            if (id != owner.getId()) {
+                names[count] = registry.get(id).getBeanName();
+                beans[count] = getInjectable(names[count]);
+                count++;
+            }
+        }
+        final Object[] elements = count == beans.length ? beans : Arrays.copyOf(beans, count);
+        switch (injectionPoint.getKind()) {
+            case ARRAY:
+                return elements;
+            case LIST:
+                return Collections.unmodifiableList(Arrays.asList(elements));
+            default:
+                final Map<String, Object> map = new LinkedHashMap<>(count * 4 / 3 + 1);
+                for (int i = 0; i < count; i++) {
+                    map.put(names[i], elements[i]);
+                }
+                return Collections.unmodifiableMap(map);
+        }
+    }
+
     /**
      * 将@Value注解中String类型的值转化为相应的值
      * @param value
-     * @param field
+     * @param type
      * @return
      */
-    private Object convertVal(String value, Field field) throws DataConversionException {
+    private Object convertVal(String value, Class<?> type) throws DataConversionException {
         Object val;
-        switch (field.getType().getName()) {
+        switch (type.getName()) {
             case "int":
             case "java.lang.Integer":
                 try {
                     val = Integer.parseInt(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             case "java.lang.String":
@@ -221,7 +743,7 @@ public class DefaultApplicationContext implements ApplicationContext {
                 break;
             case "char":
                 if (value.length() < 1)
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 val = value.charAt(0);
                 break;
             case "long":
@@ -229,7 +751,7 @@ public class DefaultApplicationContext implements ApplicationContext {
                 try {
                     val = Long.parseLong(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             case "short":
@@ -237,7 +759,7 @@ public class DefaultApplicationContext implements ApplicationContext {
                 try {
                     val = Short.parseShort(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             case "double":
@@ -245,7 +767,7 @@ public class DefaultApplicationContext implements ApplicationContext {
                 try {
                     val = Double.parseDouble(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             case "boolean":
@@ -253,7 +775,7 @@ public class DefaultApplicationContext implements ApplicationContext {
                 try {
                     val = Boolean.parseBoolean(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             case "float":
@@ -261,17 +783,164 @@ public class DefaultApplicationContext implements ApplicationContext {
                 try {
                     val = Float.parseFloat(value);
                 } catch (NumberFormatException e) {
-                    throw new DataConversionException(value, field.getType().getName());
+                    throw new DataConversionException(value, type.getName());
                 }
                 break;
             default:
-                throw new DataConversionException(value, field.getType().getName());
+                throw new DataConversionException(value, type.getName());
         }
         return val;
     }
 
-    private void proxyObject(){
+    /**
+     * 为每个bean解析每个方法需要的拦截器，有需要拦截的方法的bean生成ProxyFactory
+     * 只解析一次，之后创建对象（包括懒加载和原型模式的bean）时直接使用；推迟解析的懒加载bean在第一次创建前由resolve生成
+     * @param registry
+     * @param from 从这个id开始解析，之前的bean沿用已经解析好的结果
+     * @return 按id存放的ProxyFactory
+     */
+    private ProxyFactory[] createProxyFactories(BeanDefinitionRegistry registry, int from) throws IllegalAccessException {
+        final ProxyFactory[] factories = Arrays.copyOf(proxyFactories, registry.size());
+        int count = 0;
+        for (int id = from; id < factories.length; id++) {
+            if (!registry.get(id).getResolved()) {      //推迟解析的懒加载bean在解析时再生成
+                continue;
+            }
+            factories[id] = createProxyFactory(registry.get(id));
+            if (factories[id] != null) {
+                count++;
+            }
+        }
+        logger.info("{}个bean需要代理", count);
+        int length = factories.length;
+        while (length > 0 && factories[length - 1] == null) {
+            length--;
+        }
+        return length == factories.length ? factories : Arrays.copyOf(factories, length);
+    }
 
+    /**
+     * 构建时已经确定没有AOP注解的bean只在按包统计耗时时才需要检查，其它bean逐个方法检查
+     * @param beanDefinition
+     * @return 不需要代理时返回null
+     */
+    private ProxyFactory createProxyFactory(BeanDefinition beanDefinition) throws IllegalAccessException {
+        if (!beanDefinition.getProxyCandidate() && !metricsRegistry.inTimedPackage(beanDefinition.getBeanClass())) {
+            return null;
+        }
+        return ProxyFactory.create(beanDefinition, interceptorFactories);
+    }
+
+    /**
+     * 扫描时推迟解析的懒加载bean在第一次创建前解析构造器、注入点和@PreDestroy方法，生成代理，用不到的懒加载bean不做这些反射
+     * 解析后检查它的注入点，有问题时抛出异常，bean保持未解析，下次获取时重新解析（期间scan可能注册了缺失的bean）；
+     * 检查通过后把经过它的循环依赖合并到创建组和依赖图的检查结果中，最后才标记为已解析，其它线程看到标记时也能看到这些结果
+     * 它需要代理时按类注入它的已有注入点也要检查，此时重新分析整个依赖图，这种情况只在第一次创建这样的懒加载bean时发生一次
+     * @param beanDefinition
+     */
+    private void resolve(BeanDefinition beanDefinition) throws Exception {
+        if (beanDefinition.getResolved()) {
+            return;
+        }
+        resolveLock.lock();
+        try {
+            if (beanDefinition.getResolved()) {
+                return;
+            }
+            // scan替换注册表时持有此锁，持有时注册表、代理和创建组是一致的
+            final BeanDefinitionRegistry current = registry;
+            final int id = beanDefinition.getId();
+            BeanDefinitionScanner.resolve(beanDefinition);
+            final ProxyFactory proxyFactory = createProxyFactory(beanDefinition);
+            final ProxyFactory[] factories = proxyFactories;
+            final boolean[] proxied = Arrays.copyOf(proxied(factories), Math.max(factories.length, id + 1));
+            proxied[id] = proxyFactory != null;
+            final DependencyReport report = DependencyGraph.analyze(current, proxied, beanDefinition);
+            if (!report.getProblems().isEmpty()) {
+                throw new UnsatisfiedDependencyException(report.getProblems());
+            }
+            if (proxyFactory != null) {     //重新分析了整个依赖图
+                dependencyReport = report;
+                creationGroups = creationGroupsOf(current, report);
+                final ProxyFactory[] larger = Arrays.copyOf(factories, Math.max(factories.length, id + 1));
+                larger[id] = proxyFactory;
+                proxyFactories = larger;
+            } else if (!report.getCycles().isEmpty()) {
+                mergeCycle(current, beanDefinition, report.getCycles().get(0));
+            }
+            beanDefinition.setResolved(true);
+        } finally {
+            resolveLock.unlock();
+        }
+    }
+
+    /**
+     * 把解析懒加载bean时发现的经过它的循环依赖合并到创建组和依赖图的检查结果中，与它有重叠的已有循环合并为一个
+     * 合并后的组号沿用循环中其它bean所在的组（其中最小的）：它们可能正在按原来的组被创建，其它线程获取它们时仍然等待同一个登记
+     * @param registry
+     * @param beanDefinition
+     * @param cycle
+     */
+    private void mergeCycle(BeanDefinitionRegistry registry, BeanDefinition beanDefinition, List<String> cycle) {
+        final int[] current = creationGroups;
+        int length = current.length;
+        for (String beanName : cycle) {
+            length = Math.max(length, registry.idOf(beanName) + 1);
+        }
+        final int[] groups = Arrays.copyOf(current, length);
+        for (int id = current.length; id < length; id++) {
+            groups[id] = id;
+        }
+        final Set<Integer> merged = new HashSet<>();
+        int group = beanDefinition.getId();
+        boolean first = true;
+        for (String beanName : cycle) {
+            final int id = registry.idOf(beanName);
+            merged.add(groups[id]);
+            if (id != beanDefinition.getId() && (first || groups[id] < group)) {
+                group = groups[id];
+                first = false;
+            }
+        }
+        for (int id = 0; id < groups.length; id++) {
+            if (merged.contains(groups[id])) {
+                groups[id] = group;
+            }
+        }
+        final DependencyReport report = dependencyReport;
+        final Set<String> names = new LinkedHashSet<>(cycle);
+        final List<List<String>> cycles = new ArrayList<>();
+        for (List<String> existing : report.getCycles()) {
+            if (Collections.disjoint(existing, names)) {
+                cycles.add(existing);
+            } else {
+                names.addAll(existing);
+            }
+        }
+        cycles.add(new ArrayList<>(names));
+        dependencyReport = new DependencyReport(report.getProblems(), cycles, report.getCriticalPath());
+        creationGroups = groups;
+    }
+
+    private static boolean[] proxied(ProxyFactory[] factories) {
+        final boolean[] proxied = new boolean[factories.length];
+        for (int id = 0; id < factories.length; id++) {
+            proxied[id] = factories[id] != null;
+        }
+        return proxied;
+    }
+
+    /**
+     * 需要代理时返回对象的代理，否则返回对象本身
+     * @param beanDefinition
+     * @param object
+     * @return
+     */
+    private Object proxyObject(BeanDefinition beanDefinition, Object object) {
+        final int id = beanDefinition.getId();
+        final ProxyFactory[] factories = proxyFactories;
+        final ProxyFactory proxyFactory = id < factories.length ? factories[id] : null;
+        return proxyFactory == null ? object : proxyFactory.getProxy(object);
     }
 
     /**
@@ -280,43 +949,42 @@ public class DefaultApplicationContext implements ApplicationContext {
      */
     private void autowireObject() throws Exception {
         for (Map.Entry<String, Object> objectEntry : earlyRealObjects.entrySet()) {
-            autowireObject(objectEntry.getValue());
+            autowireObject(registry.find(objectEntry.getKey()), objectEntry.getValue());
         }
         logger.info("所有单例模式且非懒加载模式的bean初始化完成");
     }
 
     /**
      * 为对象里标注了@Autowired的域注入值
+     * @param beanDefinition
      * @param object
      */
-    private void autowireObject (Object object) throws Exception {
-        final Class<?> clazz = object.getClass();
-        for (Field field : clazz.getDeclaredFields()) {
-            final Autowired autowired = field.getAnnotation(Autowired.class);
-            final Qualifier qualifier = field.getAnnotation(Qualifier.class);
-            field.setAccessible(true);
-            if (field.get(object) != null) {
+    private void autowireObject (BeanDefinition beanDefinition, Object object) throws Exception {
+        for (InjectionPoint injectionPoint : beanDefinition.getFieldInjectionPoints()) {
+            final FieldAccessor accessor = injectionPoint.getAccessor();
+            if (injectionPoint.getValue() != null || accessor.get(object) != null) {
                 continue;
             }
-            if (autowired != null) {            //这个对象还有域需要注入
-                Object bean;
-                if (qualifier != null) {
-                    //根据beanName进行注入
-                    bean = getObject(qualifier.value());
-                } else {
-                    //根据beanType进行注入
-                    bean = getObject(field.getType());
-                }
-                field.set(object, bean);
-            }
+            accessor.set(object, resolveDependency(beanDefinition, injectionPoint));
         }
         // 检查此对象是否是单例、非懒加载的，如果是就将其加入一级缓存中，并从二级缓存中删除
-        final BeanDefinition beanDefinition = allBeansByType.get(clazz);
         if (beanDefinition.getSingleton()) {
             String beanName = beanDefinition.getBeanName();
-            iocByName.put(beanName, getObject(beanName));
-            earlyRealObjects.remove(beanName);
-            earlyProxyObjects.remove(beanName);
+            earlyObjectsLock.lock();
+            try {
+                final Object proxy = earlyProxyObjects.remove(beanName);
+                final Object real = earlyRealObjects.remove(beanName);
+                // 已经被移入一级缓存的不再处理
+                if (proxy != null || real != null) {
+                    final Object singleton = proxy != null ? proxy : real;
+                    if (beanDefinition.getIdleTimeout() > 0) {
+                        leases.put(beanDefinition.getId(), new Lease(beanDefinition, singleton));
+                    }
+                    putSingleton(beanDefinition.getId(), singleton);
+                }
+            } finally {
+                earlyObjectsLock.unlock();
+            }
         }
     }
 
@@ -326,70 +994,192 @@ public class DefaultApplicationContext implements ApplicationContext {
      * @return
      */
     private Object getObject(String beanName) throws Exception {
-        final Object o = iocByName.get(beanName);       //从一级缓存中获取
+        final int id = registry.idOf(beanName);
+        if (id < 0)         //这个类并没有被ioc容器管理，可以考虑抛出异常提示用户
+            return null;
+        final Object o = getSingleton(id);       //从一级缓存中获取
         if ( o != null) {
             return o;
         }
-        if (earlyProxyObjects.containsKey(beanName)) {  //从二级缓存中获取
-            return earlyProxyObjects.get(beanName);
+        return getBean(registry.get(id));
+    }
+
+    /**
+     * 获取单例，没有时创建：先登记bean所在的创建组，其它线程正在创建同一组的bean时等待它完成后再次检查一级缓存；
+     * 登记后依次检查一级缓存、二级缓存中的半成品，都没有时才创建。当前线程已经持有此组的登记时（组内的循环依赖）直接继续，
+     * 二级缓存中的半成品只会被创建它的线程拿到，其它线程不会拿到尚未注入完成的对象
+     * 创建失败时丢弃此组在二级缓存中残留的半成品，下次获取时可以重新创建
+     * @param beanDefinition
+     * @return
+     */
+    private Object getSingletonOrCreate(BeanDefinition beanDefinition) throws Exception {
+        // 解析可能改变创建组，所以在登记之前进行
+        resolve(beanDefinition);
+        final int id = beanDefinition.getId();
+        final int group = creationGroupOf(id);
+        CreationClaim claim;
+        for (;;) {
+            final Object o = getSingleton(id);
+            if (o != null) {
+                return o;
+            }
+            final CreationClaim current = creations.get(group);
+            if (current == null) {
+                claim = new CreationClaim();
+                if (creations.putIfAbsent(group, claim) == null) {
+                    break;
+                }
+            } else if (current.owner == Thread.currentThread()) {
+                // 本线程正在创建同一组的bean
+                claim = null;
+                break;
+            } else {
+                awaitCreation(beanDefinition, current);
+            }
         }
-        if (earlyRealObjects.containsKey(beanName)) {
-            return earlyRealObjects.get(beanName);
+        try {
+            Object o = getSingleton(id);
+            if (o != null) {
+                return o;
+            }
+            if ((o = getEarlyObject(beanDefinition.getBeanName())) != null) {  //从二级缓存中获取
+                return o;
+            }
+            try {
+                createBean(beanDefinition);
+                if (beanDefinition.getIdleTimeout() > 0) {
+                    touch(id);
+                }
+            } catch (Exception e) {
+                if (claim != null) {
+                    discardEarlyObjects(group);
+                }
+                throw e;
+            }
+            return getSingleton(id);
+        } finally {
+            if (claim != null) {
+                releaseClaim(group, claim);
+            }
         }
-        //如果缓存中都没有则表示该bean为非单例或者懒加载的，则为其创建一个对象，并根据是否为单例而决定是否加入ioc容器
-        final BeanDefinition beanDefinition = allBeansByName.get(beanName);
-        if (beanDefinition == null)         //这个类并没有被ioc容器管理，可以考虑抛出异常提示用户
-            return null;
-        final Object bean = createBean(beanDefinition);
-        if (beanDefinition.getSingleton()) {
-            return iocByName.get(beanName);
+    }
+
+    /**
+     * 等待另一个线程创建完同一组的bean
+     * 等待之前沿等待关系检查，线程之间互相等待对方正在创建的bean时抛出异常而不是死锁；
+     * 依赖图中的循环依赖都在同一组内，只有在构造器或@Bean方法中通过getBean、Provider获取bean形成的循环才会这样
+     * @param beanDefinition
+     * @param claim
+     */
+    private void awaitCreation(BeanDefinition beanDefinition, CreationClaim claim) throws Exception {
+        final Thread thread = Thread.currentThread();
+        earlyObjectsLock.lock();
+        try {
+            for (CreationClaim c = claim; c != null && !c.done.isDone(); c = waitingCreations.get(c.owner)) {
+                if (c.owner == thread) {
+                    throw new BeanCurrentlyInCreationException(beanDefinition.getBeanName());
+                }
+            }
+            waitingCreations.put(thread, claim);
+        } finally {
+            earlyObjectsLock.unlock();
+        }
+        try {
+            claim.done.get();
+        } finally {
+            waitingCreations.remove(thread);
         }
-        return bean;
     }
 
-    private Object getObject(Class<?> beanType) throws Exception {
-        return getObject(getNameByType(beanType));
+    /**
+     * 撤销登记，等待它的线程之后重新检查一级缓存
+     * @param group
+     * @param claim
+     */
+    private void releaseClaim(int group, CreationClaim claim) {
+        creations.remove(group, claim);
+        claim.done.complete(null);
     }
 
     /**
-     * 通过beanType获取beanName，调用此方法必须保证此beanType对应的是唯一的一个beanName
-     * 如果此beanType在容器中还有对应派生类的对象、或者此beanType是接口类型，在容器中有多个实现类对象则会抛出DuplicateBeanClassException异常
-     * @param beanType
+     * 从二级缓存中获取半成品，需要代理的是代理对象
+     * @param beanName
      * @return
-     * @throws DuplicateBeanClassException
-     * @throws NoSuchBeanException
      */
-    private String getNameByType(Class<?> beanType) throws DuplicateBeanClassException, NoSuchBeanException {
-        final Set<String> namesByType = getNamesByType(beanType);
-        if (namesByType.size() == 1) {
-            return namesByType.iterator().next();
-        } else if (namesByType.size() > 1) {
-            throw new DuplicateBeanClassException(beanType);
-        } else {
-            throw new NoSuchBeanException();
+    private Object getEarlyObject(String beanName) {
+        earlyObjectsLock.lock();
+        try {
+            final Object proxy = earlyProxyObjects.get(beanName);
+            return proxy != null ? proxy : earlyRealObjects.get(beanName);
+        } finally {
+            earlyObjectsLock.unlock();
+        }
+    }
+
+    /**
+     * 丢弃一个创建组在二级缓存中的半成品，其它组正在创建的半成品不受影响
+     * @param group
+     */
+    private void discardEarlyObjects(int group) {
+        earlyObjectsLock.lock();
+        try {
+            earlyRealObjects.keySet().removeIf(beanName -> creationGroupOf(registry.idOf(beanName)) == group);
+            earlyProxyObjects.keySet().removeIf(beanName -> creationGroupOf(registry.idOf(beanName)) == group);
+        } finally {
+            earlyObjectsLock.unlock();
+        }
+    }
+
+    private int creationGroupOf(int id) {
+        final int[] groups = creationGroups;
+        return id < groups.length ? groups[id] : id;
+    }
+
+    /**
+     * 按依赖图中可以通过提前暴露解决的循环依赖划分创建组，每个循环依赖中的bean以其中最小的id作为组号
+     * @param registry
+     * @param report
+     * @return
+     */
+    private static int[] creationGroupsOf(BeanDefinitionRegistry registry, DependencyReport report) {
+        int length = 0;
+        for (List<String> cycle : report.getCycles()) {
+            for (String beanName : cycle) {
+                length = Math.max(length, registry.idOf(beanName) + 1);
+            }
+        }
+        final int[] groups = new int[length];
+        for (int id = 0; id < groups.length; id++) {
+            groups[id] = id;
+        }
+        for (List<String> cycle : report.getCycles()) {
+            int group = Integer.MAX_VALUE;
+            for (String beanName : cycle) {
+                group = Math.min(group, registry.idOf(beanName));
+            }
+            for (String beanName : cycle) {
+                groups[registry.idOf(beanName)] = group;
+            }
         }
+        return groups;
     }
 
     /**
-     * 通过beanType获取beanName
-     * 此方法可以获取此类型对应的所有派生类或者实现类（对于接口而言）的对象的beanName
+     * 通过beanType获取beanName，调用此方法必须保证此beanType对应的是唯一的一个beanName
+     * 如果此beanType在容器中还有对应派生类的对象、或者此beanType是接口类型，在容器中有多个实现类对象则会抛出DuplicateBeanClassException异常
      * @param beanType
      * @return
+     * @throws DuplicateBeanClassException
+     * @throws NoSuchBeanException
      */
-    private Set<String> getNamesByType (Class<?> beanType) {
-        if (beanTypeAndName.containsKey(beanType)) {
-            return beanTypeAndName.get(beanType);
+    private String getNameByType(Class<?> beanType) throws DuplicateBeanClassException, NoSuchBeanException {
+        final int[] idsByType = registry.idsAssignableTo(beanType);
+        if (idsByType.length == 1) {
+            return registry.get(idsByType[0]).getBeanName();
+        } else if (idsByType.length > 1) {
+            throw new DuplicateBeanClassException(beanType);
         } else {
-            // 缓存中没有 so检查后加入缓存中
-            Set<String> set = new HashSet<>();
-            for (Map.Entry<String, BeanDefinition> entry : allBeansByName.entrySet()) {
-                //如果beanType是当前entry.getKey()的父类或者实现的接口或者父接口或者本身
-                if (beanType.isAssignableFrom(entry.getValue().getBeanClass())) {
-                    set.add(entry.getKey());
-                }
-            }
-            beanTypeAndName.put(beanType, set);
-            return set;
+            throw new NoSuchBeanException("容器中没有类型为" + beanType.getName() + "的bean");
         }
     }
 
@@ -400,118 +1190,505 @@ public class DefaultApplicationContext implements ApplicationContext {
      * @return
      */
     private Object createBean(BeanDefinition beanDefinition) throws Exception {
+        final String beanName = beanDefinition.getBeanName();
+        final boolean prototype = !beanDefinition.getSingleton();
+        // 原型模式的bean没有二级缓存，创建过程中再次依赖自身就是无法结束的循环
+        if (prototype && !beansInCreation.get().add(beanName)) {
+            throw new BeanCurrentlyInCreationException(beanName);
+        }
+        try {
+            //实例化一个对象，但并未初始化
+            final Object object = createObject(beanDefinition);
 
-        //实例化一个对象，但并未初始化
-        final Object object = createObject(beanDefinition);
-
-        //TODO 对刚刚实例化的对象进行代理处理，需要先判断是否需要代理
+            //对刚刚实例化的对象进行代理处理，单例的代理对象已经在createObject中放入二级缓存
+            final Object proxy = prototype ? proxyObject(beanDefinition, object) : object;
 
-        //对代理后的对象（如果需要）进行注入工作
-        autowireObject(object);
+            //向原对象注入依赖，代理对象的调用最终落到原对象上
+            autowireObject(beanDefinition, object);
 
-        return object;
+            return proxy;
+        } finally {
+            if (prototype) {
+                beansInCreation.get().remove(beanName);
+            }
+        }
     }
 
     /**
-     * 将配置类加入到容器
-     * 对一级缓存做检查，如果是配置类，则需要执行其中标注了@Bean的方法，然后将方法的返回结果加入一级缓存
+     * 创建配置类中@Bean方法定义的bean
+     * 此时配置类已经完成注入，@Bean方法中可以使用配置类的域；已经作为其它bean的依赖被创建的跳过
+     * @param from 从这个id开始，之前的bean已经处理过
      */
-    private void addConfig () throws DuplicateBeanNameException, InvocationTargetException, IllegalAccessException {
-        final Set<Map.Entry<String, Object>> entrySet = iocByName.entrySet();
-        for (Map.Entry<String, Object> objectEntry : entrySet) {
-            final Object o = checkConfig(objectEntry.getValue());
-            if (o != null) {
-                iocByName.put(objectEntry.getKey(), o);
+    private void addConfig (int from) throws Exception {
+        for (int id = from; id < registry.size(); id++) {
+            final BeanDefinition beanDefinition = registry.get(id);
+            if (beanDefinition.getFactoryBeanName() != null && getSingleton(id) == null) {
+                getBean(beanDefinition);
             }
         }
     }
 
     /**
-     * 检查是否是配置类，如果是就执行其中的标注了@Bean的方法，并将返回结果加入一级缓存
-     * 如果配置需要代理，则将代理类以同样的beanName加入一级缓存覆盖掉之前的原对象
-     * @param obj
+     * 从一级缓存中按id获取单例对象，不存在则返回null
+     * @param id
      * @return
      */
-    private Object checkConfig (Object obj) throws DuplicateBeanNameException, InvocationTargetException, IllegalAccessException {
-        final Class<?> clazz = obj.getClass();
-        final Configuration configuration = clazz.getAnnotation(Configuration.class);
-        if (configuration != null) {
-            for (Method method : clazz.getDeclaredMethods()) {
-                final Bean bean = method.getAnnotation(Bean.class);
-                if (bean != null) {
-                    // 执行这个方法， 并将执行后的结果加入到IOC容器中
-                    Class<?> aClass = method.getReturnType();
-                    String beanName = bean.name();
-                    if ("".equals(beanName)) {
-                        beanName = method.getName();
-                    }
-                    // 也许只要一个allBeansByName来判断就足够了，但由于是||，就算iocByName不是必要的也不会影响效率
-                    if (allBeansByName.containsKey(beanName) || iocByName.containsKey(beanName)) {
-                        throw new DuplicateBeanNameException(beanName);
-                    }
-                    final Object[] args = new Object[]{};
-                    final Object result = method.invoke(obj, args);
-                    iocByName.put(beanName, result);
-                    BeanDefinition beanDefinition = new BeanDefinition(beanName, aClass, false, true);
-                    allBeansByName.put(beanName, beanDefinition);
+    private Object getSingleton(int id) {
+        final AtomicReferenceArray<Object> table = singletonObjects;
+        return id < table.length() ? table.get(id) : null;
+    }
+
+    /**
+     * 按id将单例对象放入一级缓存，容量不够时扩容
+     * 写入与扩容互斥：扩容复制旧数组之后再写入旧数组的对象会丢失，所以所有写入都在锁内对当前数组进行；
+     * 只有创建单例时才写入，读取不需要加锁
+     * @param id
+     * @param object
+     */
+    private void putSingleton(int id, Object object) {
+        synchronized (this) {
+            AtomicReferenceArray<Object> table = singletonObjects;
+            if (id >= table.length()) {
+                final AtomicReferenceArray<Object> larger = new AtomicReferenceArray<>(Math.max(id + 1, table.length() << 1));
+                for (int i = 0; i < table.length(); i++) {
+                    larger.set(i, table.get(i));
                 }
+                singletonObjects = table = larger;
             }
+            table.set(id, object);
+        }
+    }
 
-            // 如果需要代理则将此标注了@Configuration的类的代理类加入ioc容器
-//            if (configuration.proxyBeanMethods())
-//                return setConfigProxy(obj);
+    /**
+     * 从一级缓存中移除空闲的单例，与扩容互斥，避免扩容时把已经移除的对象复制到新数组中
+     * @param id
+     */
+    private void removeSingleton(int id) {
+        synchronized (this) {
+            singletonObjects.set(id, null);
         }
-        return null;
     }
 
+    /**
+     * 一级缓存未命中时获取bean，懒加载或者原型模式的bean在此创建
+     * @param beanDefinition
+     * @return
+     */
+    private Object getBean(BeanDefinition beanDefinition) throws Exception {
+        if(beanDefinition.getSingleton()){
+            return getSingletonOrCreate(beanDefinition);
+        }
+        resolve(beanDefinition);
+        return createBean(beanDefinition);
+    }
 
     @Override
     public Object getBean(String beanName) throws Exception {
+        final int id = registry.idOf(beanName);
+        if(id < 0) {
+            throw new NoSuchBeanException("容器中没有名为" + beanName + "的bean");
+        }
+        return getBean(id);
+    }
+
+    @Override
+    public Object findBean(String beanName) throws Exception {
+        final int id = registry.idOf(beanName);
+        return id < 0 ? null : getBean(id);
+    }
+
+    @Override
+    public <T> T findBean(Class<T> beanType) throws Exception {
+        final int[] ids = registry.idsAssignableTo(beanType);
+        if (ids.length != 1) {
+            return null;
+        }
+        // 需要代理的bean是JDK动态代理，按类查找时不是该类型
+        final Object o = getBean(ids[0]);
+        return beanType.isInstance(o) ? beanType.cast(o) : null;
+    }
+
+    @Override
+    public <T> T findBean(String beanName, Class<T> beanType) throws Exception {
+        final int id = registry.idOf(beanName);
+        if (id < 0 || !beanType.isAssignableFrom(registry.get(id).getBeanClass())) {
+            return null;
+        }
+        final Object o = getBean(id);
+        return beanType.isInstance(o) ? beanType.cast(o) : null;
+    }
+
+    /**
+     * 按id获取bean，一级缓存命中时只有一次数组读取
+     * @param id
+     * @return
+     */
+    private Object getBean(int id) throws Exception {
         // 先尝试在一级缓存中获取
-        Object o = iocByName.get(beanName);
+        Object o = getSingleton(id);
         if(o != null) {
+            if (registry.get(id).getIdleTimeout() > 0) {
+                touch(id);
+            }
             return o;
         }
         // 考虑可能是懒加载或者原型模式
-        BeanDefinition beanDefinition = allBeansByName.get(beanName);
-        if(beanDefinition == null) {
-            throw new NoSuchBeanException();
-        }
-        Object bean = createBean(beanDefinition);
-        if(beanDefinition.getSingleton()){
-            return iocByName.get(beanName);
-        }
-        return bean;
+        return getBean(registry.get(id));
     }
 
     @Override
     public <T> T getBean(Class<T> beanType) throws Exception {
-        return (T) getBean(getNameByType(beanType));
+        return getBean(getNameByType(beanType), beanType);
+    }
+
+    @Override
+    public CompletableFuture<Object> getBeanAsync(String beanName) {
+        return getBeanAsync(beanName, asyncInterceptorFactory.getOrCreateDefaultExecutor());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getBeanAsync(Class<T> beanType) {
+        return getBeanAsync(beanType, asyncInterceptorFactory.getOrCreateDefaultExecutor());
+    }
+
+    /**
+     * 在指定的Executor中异步获取bean，见{@link #getBeanAsync(String)}
+     * @param beanName
+     * @param executor
+     * @return
+     */
+    public CompletableFuture<Object> getBeanAsync(String beanName, Executor executor) {
+        final BeanDefinition beanDefinition = registry.find(beanName);
+        if (beanDefinition == null) {
+            return failedFuture(new NoSuchBeanException("容器中没有名为" + beanName + "的bean"));
+        }
+        return getBeanAsync(beanDefinition, executor);
+    }
+
+    /**
+     * 在指定的Executor中异步获取bean，见{@link #getBeanAsync(Class)}
+     * @param beanType
+     * @param executor
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> getBeanAsync(Class<T> beanType, Executor executor) {
+        try {
+            return getBeanAsync(getNameByType(beanType), executor).thenApply(beanType::cast);
+        } catch (DuplicateBeanClassException | NoSuchBeanException e) {
+            return failedFuture(e);
+        }
+    }
+
+    /**
+     * 单例已经创建时直接返回完成的future，否则同一个单例只有一次异步创建，其它调用共用它的future
+     * @param beanDefinition
+     * @param executor
+     * @return
+     */
+    private CompletableFuture<Object> getBeanAsync(BeanDefinition beanDefinition, Executor executor) {
+        if (!beanDefinition.getSingleton()) {
+            return createAsync(beanDefinition, executor);
+        }
+        final int id = beanDefinition.getId();
+        final Object o = getSingleton(id);
+        if (o != null) {
+            if (beanDefinition.getIdleTimeout() > 0) {
+                touch(id);
+            }
+            return CompletableFuture.completedFuture(o);
+        }
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        final CompletableFuture<Object> inFlight = asyncCreations.putIfAbsent(id, future);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        createAsync(beanDefinition, executor).whenComplete((object, e) -> {
+            // 先取消登记再完成，之后的调用直接从一级缓存获取，失败时可以重新创建
+            asyncCreations.remove(id, future);
+            if (e == null) {
+                future.complete(object);
+            } else {
+                future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 先并行地异步获取bean依赖的所有bean，全部完成后再在Executor中创建bean本身
+     * 依赖按发起时的注册表确定，bean本身与同步获取走同一个创建流程，此时依赖都已在一级缓存中，只需实例化和注入这一个bean；
+     * 期间通过scan新注册、尚未创建的依赖在创建流程中按需创建
+     * 在循环依赖中的bean不能这样拆分（互相等待对方的future），直接在Executor中走同步的创建流程
+     * @param beanDefinition
+     * @param executor
+     * @return
+     */
+    private CompletableFuture<Object> createAsync(BeanDefinition beanDefinition, Executor executor) {
+        try {
+            resolve(beanDefinition);
+        } catch (Exception e) {
+            return failedFuture(e);
+        }
+        if (!inCycle(beanDefinition)) {
+            final BeanDefinitionRegistry current = registry;
+            final int[] dependencies = dependenciesOf(current, beanDefinition);
+            final CompletableFuture<?>[] futures = new CompletableFuture<?>[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                futures[i] = getBeanAsync(current.get(dependencies[i]), executor);
+            }
+            return CompletableFuture.allOf(futures).thenApplyAsync(ignored -> createInExecutor(beanDefinition), executor);
+        }
+        return CompletableFuture.supplyAsync(() -> createInExecutor(beanDefinition), executor);
+    }
+
+    private Object createInExecutor(BeanDefinition beanDefinition) {
+        try {
+            return getBean(beanDefinition);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * bean的注入点依赖的单例bean的id（不包括自身），@Value和Provider类型的注入点不依赖任何bean
+     * 原型模式的依赖不预先获取：注入时总会创建新的对象，预先创建的对象只会被丢弃，构造器和其中的副作用会执行两次
+     * @param registry
+     * @param beanDefinition
+     * @return
+     */
+    private static int[] dependenciesOf(BeanDefinitionRegistry registry, BeanDefinition beanDefinition) {
+        final InjectionPoint[] arguments = beanDefinition.getConstructorArguments();
+        final InjectionPoint[] fields = beanDefinition.getFieldInjectionPoints();
+        final List<Integer> dependencies = new ArrayList<>();
+        for (int i = 0; i < arguments.length + fields.length; i++) {
+            final InjectionPoint injectionPoint = i < arguments.length ? arguments[i] : fields[i - arguments.length];
+            if (injectionPoint.getValue() != null || injectionPoint.getKind() == InjectionPoint.Kind.PROVIDER) {
+                continue;
+            }
+            final int[] targets = injectionPoint.getQualifier() != null && !injectionPoint.getKind().isCollection()
+                    ? new int[]{registry.idOf(injectionPoint.getQualifier())}
+                    : registry.idsAssignableTo(injectionPoint.getDependencyType());
+            for (int target : targets) {
+                if (target >= 0 && target != beanDefinition.getId() && registry.get(target).getSingleton()
+                        && !dependencies.contains(target)) {
+                    dependencies.add(target);
+                }
+            }
+        }
+        final int[] ids = new int[dependencies.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = dependencies.get(i);
+        }
+        return ids;
+    }
+
+    private boolean inCycle(BeanDefinition beanDefinition) {
+        final DependencyReport report = dependencyReport;
+        if (report != null) {
+            for (List<String> cycle : report.getCycles()) {
+                if (cycle.contains(beanDefinition.getBeanName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
     }
 
     @Override
     public <T> T getBean(String name, Class<T> beanType) throws Exception {
         final Object o = getBean(name);
         if (beanType.isInstance(o)) {
-            return (T) o;
+            return beanType.cast(o);
+        } else if (Proxy.isProxyClass(o.getClass())) {
+            throw new NoSuchBeanException("bean[" + name + "]是JDK动态代理，只能按接口获取，不能按" + beanType.getName() + "获取");
         } else {
-            throw new NoSuchBeanException();
+            throw new NoSuchBeanException("bean[" + name + "]不是" + beanType.getName() + "类型");
+        }
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * 获取所有@Cacheable缓存的命中、未命中、淘汰等统计信息
+     * @return 缓存名称到统计信息的映射
+     */
+    public Map<String, CacheStats> getCacheStats() {
+        return cacheManager.getStats();
+    }
+
+    /**
+     * 获取所有被统计耗时的方法的耗时分布，单位为纳秒
+     * @return 方法名称到统计结果的映射
+     */
+    public Map<String, LatencySnapshot> getLatencySnapshots() {
+        return metricsRegistry.getSnapshots();
+    }
+
+    /**
+     * 以文本表格的形式输出所有方法的耗时分布
+     * @return
+     */
+    public String dumpLatencies() {
+        return metricsRegistry.dump();
+    }
+
+    /**
+     * 获取还没有创建的单例bean的名称，即懒加载且尚未被获取、也未被后台预热的bean
+     * @return
+     */
+    public List<String> getColdBeanNames() {
+        final List<String> names = new ArrayList<>();
+        for (int id = 0; id < registry.size(); id++) {
+            final BeanDefinition beanDefinition = registry.get(id);
+            if (beanDefinition.getSingleton() && getSingleton(id) == null) {
+                names.add(beanDefinition.getBeanName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 获取启动时对依赖图的检查结果，包括循环依赖和关键路径
+     * @return
+     */
+    public DependencyReport getDependencyReport() {
+        return dependencyReport;
+    }
+
+    /**
+     * 写出容器用到的类：扫描时加载的类、bean的类、构造器和@Bean方法所在的类及参数类型、注入点的类型，
+     * 以及容器自身正在使用的类（容器、注册表、拦截器、代理、注入等对象的类），这些类都已经加载，写出时不会加载新的类
+     * 格式为JDK的class list，可以用{@link AppCds#dumpArchive}生成AppCDS归档
+     * @param file
+     * @return 写出的类的数量
+     */
+    public int writeClassList(Path file) throws IOException {
+        final Set<Class<?>> classes;
+        synchronized (scannedClasses) {
+            classes = new LinkedHashSet<>(scannedClasses);
+        }
+        final BeanDefinitionRegistry current = registry;
+        classes.add(getClass());
+        classes.add(current.getClass());
+        classes.add(environment.getClass());
+        for (InterceptorFactory interceptorFactory : interceptorFactories) {
+            classes.add(interceptorFactory.getClass());
+        }
+        for (ProxyFactory proxyFactory : proxyFactories) {
+            if (proxyFactory != null) {
+                classes.add(proxyFactory.getClass());
+            }
+        }
+        for (int id = 0; id < current.size(); id++) {
+            final BeanDefinition beanDefinition = current.get(id);
+            classes.add(beanDefinition.getClass());
+            if (!beanDefinition.getResolved()) {        //没有创建过的懒加载bean只用到了类本身
+                classes.add(beanDefinition.getBeanClass());
+                continue;
+            }
+            classes.add(beanDefinition.getInstantiator().getClass());
+            classes.add(beanDefinition.getBeanClass());
+            final Executable executable = beanDefinition.getConstructorOrFactoryMethod();
+            if (executable != null) {
+                classes.add(executable.getDeclaringClass());
+                classes.addAll(Arrays.asList(executable.getParameterTypes()));
+            }
+            for (InjectionPoint argument : beanDefinition.getConstructorArguments()) {
+                classes.add(argument.getType());
+                classes.add(argument.getDependencyType());
+            }
+            for (InjectionPoint field : beanDefinition.getFieldInjectionPoints()) {
+                classes.add(field.getClass());
+                classes.add(field.getAccessor().getClass());
+                classes.add(field.getType());
+                classes.add(field.getDependencyType());
+            }
+        }
+        return AppCds.writeClassList(classes, file);
+    }
+
+    /**
+     * 关闭容器：停止空闲bean的清理线程和@Async的默认线程池，按注册的逆序调用已创建的单例的@PreDestroy方法并清空一级缓存
+     * 关闭后不应再使用此容器
+     */
+    @Override
+    public void close() {
+        scanLock.lock();
+        try {
+            if (idleReaper != null) {
+                idleReaper.shutdownNow();
+            }
+        } finally {
+            scanLock.unlock();
+        }
+        final ExecutorService executor = asyncInterceptorFactory.getDefaultExecutor();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        for (int id = registry.size() - 1; id >= 0; id--) {
+            final Object object = getSingleton(id);
+            if (object != null) {
+                removeSingleton(id);
+                destroyBean(registry.get(id), object);
+            }
+        }
+        Lease lease;
+        while ((lease = retiredLeases.poll()) != null) {
+            destroyBean(lease.beanDefinition, lease.object);
         }
+        leases.clear();
+        scopedProxies.clear();
+        logger.info("IOC容器已关闭");
+    }
+
+    @Override
+    public <T> BeanHandle<T> getBeanHandle(String name, Class<T> beanType) throws NoSuchBeanException {
+        final BeanDefinition beanDefinition = getBeanDefinition(name, beanType);
+        final int id = beanDefinition.getId();
+        // 延迟解析的bean在解析之后才知道是否需要代理
+        try {
+            resolve(beanDefinition);
+        } catch (Exception e) {
+            throw new IllegalStateException("解析bean[" + name + "]失败", e);
+        }
+        final ProxyFactory[] factories = proxyFactories;
+        // handle拿到的是代理对象，按类获取会在调用方类型转换失败
+        if (id < factories.length && factories[id] != null && !beanType.isInterface() && beanType != Object.class) {
+            throw new NoSuchBeanException("bean[" + name + "]是JDK动态代理，只能按接口获取，不能按" + beanType.getName() + "获取");
+        }
+        return new DefaultBeanHandle<>(id, beanDefinition.getBeanName(), beanType);
+    }
+
+    @Override
+    public <T> BeanHandle<T> getBeanHandle(Class<T> beanType) throws DuplicateBeanClassException, NoSuchBeanException {
+        return getBeanHandle(getNameByType(beanType), beanType);
     }
 
     @Override
     public Class<?> getType(String name) throws NoSuchBeanException {
-        if(allBeansByName.containsKey(name)){
-            return allBeansByName.get(name).getBeanClass();
+        BeanDefinition beanDefinition = registry.find(name);
+        if(beanDefinition != null){
+            return beanDefinition.getBeanClass();
         }else{
-            throw new NoSuchBeanException();
+            throw new NoSuchBeanException("容器中没有名为" + name + "的bean");
         }
     }
 
     @Override
     public <T> Map<String, T> getBeansOfType(Class<T> beanType) throws Exception {
-        Map<String, T> map = new HashMap<>();
-        for (String s : getNamesByType(beanType)) {
+        final int[] ids = registry.orderedIdsAssignableTo(beanType);
+        Map<String, T> map = new LinkedHashMap<>(ids.length * 4 / 3 + 1);
+        for (int id : ids) {
+            String s = registry.get(id).getBeanName();
             map.put(s, (T) getBean(s));
         }
         return map;
@@ -519,35 +1696,31 @@ public class DefaultApplicationContext implements ApplicationContext {
 
     @Override
     public int getBeanDefinitionCount() {
-        return beanDefinitions.size();
+        return registry.size();
     }
 
     @Override
     public String[] getBeanDefinitionNames() {
-        String[] result = new String[beanDefinitions.size()];
-        int i = 0;
-        for (BeanDefinition beanDefinition:beanDefinitions) {
-            result[i++] = beanDefinition.getBeanName();
-        }
-        return result;
+        return registry.getBeanNames();
     }
 
     @Override
     public boolean containsBean(String name) {
-        return allBeansByName.containsKey(name);
+        return registry.idOf(name) >= 0;
     }
 
     @Override
     public boolean containsBeanDefinition(String beanName) {
-        return allBeansByName.containsKey(beanName);
+        return registry.idOf(beanName) >= 0;
     }
 
     @Override
     public BeanDefinition getBeanDefinition(String beanName) throws NoSuchBeanException {
-        if(allBeansByName.containsKey(beanName)){
-            return allBeansByName.get(beanName);
+        BeanDefinition beanDefinition = registry.find(beanName);
+        if(beanDefinition != null){
+            return beanDefinition;
         }
-        throw new NoSuchBeanException();
+        throw new NoSuchBeanException("容器中没有名为" + beanName + "的bean");
     }
 
     @Override
@@ -556,11 +1729,98 @@ public class DefaultApplicationContext implements ApplicationContext {
         if (beanType.isAssignableFrom(beanDefinition.getBeanClass())) {
             return beanDefinition;
         }
-        throw new NoSuchBeanException();
+        throw new NoSuchBeanException("bean[" + beanName + "]不是" + beanType.getName() + "类型");
     }
 
     @Override
     public BeanDefinition getBeanDefinition(Class<?> beanType) throws DuplicateBeanClassException, NoSuchBeanException {
         return getBeanDefinition(getNameByType(beanType));
     }
+
+    /**
+     * 会过期的单例的一个对象，以及通过作用域代理正在使用它的调用数
+     */
+    private static final class Lease implements ProxyFactory.ScopedTarget {
+
+        private final BeanDefinition beanDefinition;
+
+        private final Object object;
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        // 已经被清理线程移出一级缓存，不再接受新的调用
+        private volatile boolean retired;
+
+        Lease(BeanDefinition beanDefinition, Object object) {
+            this.beanDefinition = beanDefinition;
+            this.object = object;
+        }
+
+        @Override
+        public Object getObject() {
+            return object;
+        }
+
+        @Override
+        public void release() {
+            calls.decrementAndGet();
+        }
+    }
+
+    /**
+     * 一个创建组被某个线程登记创建（或者被清理线程登记释放）
+     */
+    private static final class CreationClaim {
+
+        private final Thread owner = Thread.currentThread();
+
+        // 撤销登记时完成，等待的线程之后重新检查一级缓存
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+    }
+
+    /**
+     * BeanHandle的实现，name和type在创建handle时已经检查过
+     * 单例已经创建时get()只是一次对一级缓存数组的读取，否则走正常的创建流程
+     * @param <T>
+     */
+    private final class DefaultBeanHandle<T> implements BeanHandle<T> {
+        private final int id;
+        private final String beanName;
+        private final Class<T> beanType;
+        // 是否是会过期的bean，是的话每次get()都记录一次访问
+        private final boolean expiring;
+
+        DefaultBeanHandle(int id, String beanName, Class<T> beanType) {
+            this.id = id;
+            this.beanName = beanName;
+            this.beanType = beanType;
+            this.expiring = registry.get(id).getIdleTimeout() > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() throws Exception {
+            final AtomicReferenceArray<Object> table = singletonObjects;
+            if (id < table.length()) {
+                final Object o = table.get(id);
+                if (o != null) {
+                    if (expiring) {
+                        touch(id);
+                    }
+                    return (T) o;
+                }
+            }
+            return (T) getBean(registry.get(id));
+        }
+
+        @Override
+        public String getBeanName() {
+            return beanName;
+        }
+
+        @Override
+        public Class<T> getBeanType() {
+            return beanType;
+        }
+    }
 }
@@ -0,0 +1,158 @@
+package com.bytedance.spring.context.impl;
+
+import com.bytedance.spring.ioc.annotation.ConditionalOnClass;
+import com.bytedance.spring.ioc.annotation.ConditionalOnProperty;
+import com.bytedance.spring.ioc.annotation.Profile;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.AnnotatedElement;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 容器的运行环境：property配置文件中的配置项以及激活的profile
+ * 同名的系统属性（-Dkey=value）优先于配置文件
+ */
+public class Environment {
+
+    // 激活的profile的配置项
+    public static final String ACTIVE_PROFILES = "summer.profiles.active";
+
+    // 是否在启动完成后于后台预热懒加载的单例bean
+    public static final String LAZY_WARMUP = "summer.lazy.warmup";
+
+    // 启动完成后写出用到的类的列表（JDK的class list格式）的文件，用于生成AppCDS归档
+    public static final String CDS_CLASS_LIST = "summer.cds.class-list";
+
+    private final Properties properties;
+
+    private final Set<String> activeProfiles;
+
+    // 读取过的配置项 -> 读取时的系统属性，用于判断之后系统属性的变化是否影响此环境创建的容器
+    private final Map<String, Optional<String>> systemPropertiesRead = new ConcurrentHashMap<>();
+
+    public Environment(Properties properties) {
+        this.properties = properties;
+        final Set<String> profiles = new LinkedHashSet<>();
+        final String active = getProperty(ACTIVE_PROFILES);
+        if (active != null) {
+            for (String profile : active.split(",")) {
+                if (!profile.trim().isEmpty()) {
+                    profiles.add(profile.trim());
+                }
+            }
+        }
+        this.activeProfiles = Collections.unmodifiableSet(profiles);
+    }
+
+    /**
+     * 加载配置文件，先在classpath中查找，找不到再作为文件路径读取
+     * @param propertyFile 为null时没有配置文件，只使用系统属性
+     * @return
+     */
+    public static Environment load(String propertyFile) throws IOException {
+        final Properties properties = new Properties();
+        if (propertyFile != null) {
+            InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(propertyFile);
+            if (in == null) {
+                in = new FileInputStream(propertyFile);
+            }
+            try (InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return new Environment(properties);
+    }
+
+    public String getProperty(String name) {
+        final String value = System.getProperty(name);
+        systemPropertiesRead.putIfAbsent(name, Optional.ofNullable(value));
+        return value != null ? value : properties.getProperty(name);
+    }
+
+    /**
+     * 读取过的配置项中是否有系统属性与读取时不同，不同时按此环境创建的容器已经不符合当前的系统属性
+     * @return
+     */
+    boolean systemPropertiesChanged() {
+        for (Map.Entry<String, Optional<String>> entry : systemPropertiesRead.entrySet()) {
+            if (!entry.getValue().equals(Optional.ofNullable(System.getProperty(entry.getKey())))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getProperty(String name, String defaultValue) {
+        final String value = getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+
+    public Set<String> getActiveProfiles() {
+        return activeProfiles;
+    }
+
+    /**
+     * 判断类或者@Bean方法上的@Profile、@ConditionalOnProperty、@ConditionalOnClass条件是否全部满足
+     * @param element
+     * @return
+     */
+    public boolean matches(AnnotatedElement element) {
+        final Profile profile = element.getAnnotation(Profile.class);
+        if (profile != null && !matchesProfile(profile)) {
+            return false;
+        }
+        final ConditionalOnProperty onProperty = element.getAnnotation(ConditionalOnProperty.class);
+        if (onProperty != null && !matchesProperty(onProperty)) {
+            return false;
+        }
+        final ConditionalOnClass onClass = element.getAnnotation(ConditionalOnClass.class);
+        return onClass == null || matchesClass(onClass);
+    }
+
+    private boolean matchesProfile(Profile profile) {
+        for (String value : profile.value()) {
+            if (value.startsWith("!") ? !activeProfiles.contains(value.substring(1)) : activeProfiles.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesProperty(ConditionalOnProperty onProperty) {
+        final String value = getProperty(onProperty.name());
+        if (value == null) {
+            return onProperty.matchIfMissing();
+        }
+        if ("".equals(onProperty.havingValue())) {
+            return !"false".equalsIgnoreCase(value.trim());
+        }
+        return onProperty.havingValue().equalsIgnoreCase(value.trim());
+    }
+
+    private boolean matchesClass(ConditionalOnClass onClass) {
+        try {
+            onClass.value();
+        } catch (TypeNotPresentException e) {      //value中指定的类不存在
+            return false;
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        for (String name : onClass.name()) {
+            try {
+                Class.forName(name, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package com.bytedance.spring.context.impl;
+
+import com.bytedance.spring.annotation.Configuration;
+import com.bytedance.spring.ioc.annotation.Component;
+import com.bytedance.spring.ioc.annotation.ConditionalOnClass;
+import com.bytedance.spring.ioc.annotation.ConditionalOnProperty;
+import com.bytedance.spring.ioc.annotation.Controller;
+import com.bytedance.spring.ioc.annotation.ExpireAfterIdle;
+import com.bytedance.spring.ioc.annotation.Lazy;
+import com.bytedance.spring.ioc.annotation.Order;
+import com.bytedance.spring.ioc.annotation.Profile;
+import com.bytedance.spring.ioc.annotation.Repository;
+import com.bytedance.spring.ioc.annotation.Scope;
+import com.bytedance.spring.ioc.annotation.Service;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 一个类上与创建bean有关的注解，扫描时对每个类的注解只遍历一次得到
+ * 每种注解类型属于哪一类（组件、配置类、懒加载、作用域……）缓存在ClassValue中，同一种注解只判断一次；
+ * 标注了@Component、@Service、@Repository、@Controller（可以是间接地标注在注解上）的自定义注解也是组件注解，
+ * 它的String类型的value属性作为beanName
+ */
+final class TypeAnnotations {
+
+    private enum Kind {
+        STEREOTYPE, CONFIGURATION, LAZY, SCOPE, ORDER, EXPIRE_AFTER_IDLE, CONDITION, IRRELEVANT
+    }
+
+    /**
+     * 一种注解类型的分类，组件注解还记录读取beanName的value方法
+     */
+    private static final class AnnotationType {
+        private final Kind kind;
+        private final Method nameAttribute;
+
+        AnnotationType(Kind kind, Method nameAttribute) {
+            this.kind = kind;
+            this.nameAttribute = nameAttribute;
+        }
+    }
+
+    private static final ClassValue<AnnotationType> ANNOTATION_TYPES = new ClassValue<AnnotationType>() {
+        @Override
+        protected AnnotationType computeValue(Class<?> type) {
+            return classify(type);
+        }
+    };
+
+    // 组件注解指定的beanName，没有组件注解时为null，没有指定时为""
+    String beanName;
+
+    boolean configuration;
+
+    boolean lazy;
+
+    // @Scope的值，没有标注时为null
+    String scope;
+
+    // @Order的值，没有标注时为null
+    Integer order;
+
+    // @ExpireAfterIdle的值，没有标注时为null
+    Long idleTimeout;
+
+    // 是否有@Profile、@ConditionalOnProperty、@ConditionalOnClass，有的话才需要求值
+    boolean conditional;
+
+    private TypeAnnotations() {
+    }
+
+    /**
+     * 遍历一次类上的注解
+     * @param clazz
+     * @return
+     */
+    static TypeAnnotations of(Class<?> clazz) {
+        final TypeAnnotations annotations = new TypeAnnotations();
+        for (Annotation annotation : clazz.getAnnotations()) {
+            final AnnotationType type = ANNOTATION_TYPES.get(annotation.annotationType());
+            switch (type.kind) {
+                case STEREOTYPE:
+                    annotations.setBeanName(nameOf(annotation, type.nameAttribute));
+                    break;
+                case CONFIGURATION:
+                    annotations.configuration = true;
+                    annotations.setBeanName(((Configuration) annotation).value());
+                    break;
+                case LAZY:
+                    annotations.lazy = true;
+                    break;
+                case SCOPE:
+                    annotations.scope = ((Scope) annotation).value();
+                    break;
+                case ORDER:
+                    annotations.order = ((Order) annotation).value();
+                    break;
+                case EXPIRE_AFTER_IDLE:
+                    annotations.idleTimeout = ((ExpireAfterIdle) annotation).value();
+                    break;
+                case CONDITION:
+                    annotations.conditional = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return annotations;
+    }
+
+    /**
+     * 有多个组件注解时，指定了beanName的优先
+     */
+    private void setBeanName(String name) {
+        if (beanName == null || beanName.isEmpty()) {
+            beanName = name;
+        }
+    }
+
+    private static String nameOf(Annotation annotation, Method nameAttribute) {
+        if (nameAttribute == null) {
+            return "";
+        }
+        try {
+            return (String) nameAttribute.invoke(annotation);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("无法读取" + annotation + "的value", e);
+        }
+    }
+
+    private static AnnotationType classify(Class<?> type) {
+        if (type == Configuration.class) {
+            return new AnnotationType(Kind.CONFIGURATION, null);
+        }
+        if (type == Lazy.class) {
+            return new AnnotationType(Kind.LAZY, null);
+        }
+        if (type == Scope.class) {
+            return new AnnotationType(Kind.SCOPE, null);
+        }
+        if (type == Order.class) {
+            return new AnnotationType(Kind.ORDER, null);
+        }
+        if (type == ExpireAfterIdle.class) {
+            return new AnnotationType(Kind.EXPIRE_AFTER_IDLE, null);
+        }
+        if (type == Profile.class || type == ConditionalOnProperty.class || type == ConditionalOnClass.class) {
+            return new AnnotationType(Kind.CONDITION, null);
+        }
+        if (isStereotypeType(type) || isStereotype(type, new HashSet<>())) {
+            Method nameAttribute = null;
+            try {
+                final Method value = type.getMethod("value");
+                if (value.getReturnType() == String.class) {
+                    value.setAccessible(true);
+                    nameAttribute = value;
+                }
+            } catch (NoSuchMethodException ignored) {
+            }
+            return new AnnotationType(Kind.STEREOTYPE, nameAttribute);
+        }
+        return new AnnotationType(Kind.IRRELEVANT, null);
+    }
+
+    private static boolean isStereotypeType(Class<?> type) {
+        return type == Component.class || type == Repository.class || type == Service.class || type == Controller.class;
+    }
+
+    /**
+     * 注解类型上是否直接或间接地标注了组件注解，java.lang.annotation中的元注解不需要检查
+     */
+    private static boolean isStereotype(Class<?> type, Set<Class<?>> visited) {
+        if (!visited.add(type)) {
+            return false;
+        }
+        for (Annotation meta : type.getAnnotations()) {
+            final Class<? extends Annotation> metaType = meta.annotationType();
+            if (isStereotypeType(metaType)) {
+                return true;
+            }
+            if (!metaType.getName().startsWith("java.lang.annotation.") && isStereotype(metaType, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
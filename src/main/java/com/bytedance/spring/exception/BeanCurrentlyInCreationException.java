@@ -0,0 +1,25 @@
+package com.bytedance.spring.exception;
+
+/**
+ * 通过构造器注入形成的循环依赖，或者原型模式bean之间的循环依赖，无法通过提前暴露半成品对象解决
+ */
+public class BeanCurrentlyInCreationException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String beanName;
+
+    public BeanCurrentlyInCreationException(String beanName) {
+        super("bean正在创建中，存在无法解决的循环依赖：" + beanName);
+        this.beanName = beanName;
+    }
+
+    public String getBeanName() {
+        return beanName;
+    }
+
+    @Override
+    public void printStackTrace() {
+        System.err.println("发生无法解决的循环依赖异常：" + beanName);
+        super.printStackTrace();
+    }
+}
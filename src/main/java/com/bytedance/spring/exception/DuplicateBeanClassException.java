@@ -1,9 +1,16 @@
 package com.bytedance.spring.exception;
 
+/**
+ * 按类型获取bean时容器中有多个该类型的bean，与NoSuchBeanException一样不记录调用栈
+ * 只是探测时应当使用ApplicationContext.findBean，不唯一时返回null
+ */
 public class DuplicateBeanClassException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     private final Class<?> clazz;
 
     public DuplicateBeanClassException(Class<?> clazz) {
+        super("类型" + clazz.getName() + "在容器中有多个bean", null, false, false);
         this.clazz = clazz;
     }
 
@@ -1,5 +1,18 @@
 package com.bytedance.spring.exception;
 
+/**
+ * 容器中没有要获取的bean
+ * 不记录调用栈，获取bean失败时创建异常的开销很小；message中已经说明了是哪个bean
+ * 只是探测bean是否存在时应当使用ApplicationContext.findBean，不存在时返回null，不需要创建异常
+ */
 public class NoSuchBeanException extends Exception {
+    private static final long serialVersionUID = 1L;
 
-}
\ No newline at end of file
+    public NoSuchBeanException() {
+        this(null);
+    }
+
+    public NoSuchBeanException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,22 @@
+package com.bytedance.spring.exception;
+
+import java.util.List;
+
+/**
+ * 启动时检查依赖图发现的所有问题：缺失的依赖、不唯一的依赖、无法解决的循环依赖
+ */
+public class UnsatisfiedDependencyException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> problems;
+
+    public UnsatisfiedDependencyException(List<String> problems) {
+        super("依赖检查发现" + problems.size() + "个问题：" + System.lineSeparator()
+                + String.join(System.lineSeparator(), problems));
+        this.problems = problems;
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+}
@@ -8,7 +8,7 @@ import java.lang.annotation.Target;
 /**
  * 自动注入注解
  */
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.CONSTRUCTOR})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Autowired {
 }
@@ -0,0 +1,19 @@
+package com.bytedance.spring.ioc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只有在classpath中存在指定的类时才注册此bean，可以标注在类和@Bean方法上
+ * 可能不存在的类建议用name以字符串指定，避免读取注解时加载失败
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalOnClass {
+
+    Class<?>[] value() default {};
+
+    String[] name() default {};
+}
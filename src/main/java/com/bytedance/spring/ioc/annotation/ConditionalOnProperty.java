@@ -0,0 +1,21 @@
+package com.bytedance.spring.ioc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只有在配置项满足条件时才注册此bean，可以标注在类和@Bean方法上
+ * 没有指定havingValue时，配置项存在且不为false即满足条件
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalOnProperty {
+
+    String name();
+
+    String havingValue() default "";
+
+    boolean matchIfMissing() default false;
+}
@@ -0,0 +1,17 @@
+package com.bytedance.spring.ioc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注此注解的单例bean在超过value毫秒没有被访问后释放，释放前调用@PreDestroy方法，下次访问时重新创建
+ * 注入到其它bean中的是按接口生成的作用域代理，每次调用都从容器中获取当前的对象，所以只能按接口注入；
+ * 直接获取对象时应当使用BeanHandle，每次使用前get()一次，而不是长期持有对象
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExpireAfterIdle {
+    long value();
+}
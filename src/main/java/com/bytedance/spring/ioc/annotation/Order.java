@@ -0,0 +1,16 @@
+package com.bytedance.spring.ioc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * bean的优先级，值越小越靠前，没有标注的bean排在最后
+ * 懒加载bean的后台预热按此顺序进行
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Order {
+    int value() default Integer.MAX_VALUE;
+}
@@ -0,0 +1,16 @@
+package com.bytedance.spring.ioc.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 只有在指定的profile激活时才注册此bean，可以标注在类和@Bean方法上
+ * 激活的profile由配置项summer.profiles.active指定，多个用逗号分隔；以!开头表示该profile未激活时注册
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Profile {
+    String[] value();
+}
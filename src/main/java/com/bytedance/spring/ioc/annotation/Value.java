@@ -9,7 +9,7 @@ import java.lang.annotation.Target;
  * \@Value注解，设置某些字段的初始值
  * 注解在域上面的注解
  */
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.PARAMETER})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Value {
     String value();
@@ -1,22 +1,70 @@
 package com.bytedance.spring.ioc.bean;
 
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+
 public class BeanDefinition {
 
+    // 没有构造器参数、没有需要注入的域时共用的空数组
+    public static final InjectionPoint[] NO_INJECTION_POINTS = new InjectionPoint[0];
+
+    // 在BeanDefinitionRegistry中分配的id，未注册时为-1
+    private int id = -1;
     private String beanName;
     private Class<?> beanClass;
-    private Boolean lazy;
-    private Boolean singleton;
+    private boolean lazy;
+    private boolean singleton;
+
+    // @Order指定的优先级，值越小越靠前
+    private int order = Integer.MAX_VALUE;
+
+    // @ExpireAfterIdle指定的空闲时间（毫秒），超过后单例被释放，0表示不释放
+    private long idleTimeout;
+
+    // 标注了@PreDestroy的方法，bean被释放前调用
+    private Method destroyMethod;
+
+    // 创建实例的方式，构造器或者@Bean方法
+    private BeanInstantiator instantiator;
+
+    // 扫描时解析出的构造器或者@Bean方法，由生成的代码创建的BeanDefinition没有
+    private Executable constructorOrFactoryMethod;
+
+    // 构造器参数的注入信息，无参构造器时为空数组
+    private InjectionPoint[] constructorArguments = NO_INJECTION_POINTS;
+
+    // 需要注入的域，包括标注了@Value和@Autowired的域
+    private InjectionPoint[] fieldInjectionPoints = NO_INJECTION_POINTS;
+
+    // 构造器、注入点、@PreDestroy方法是否已经解析，扫描时@Lazy的bean推迟到第一次创建时才解析
+    // 先写入解析结果再写入此标记，读到true的线程一定能看到解析结果
+    private volatile boolean resolved = true;
+
+    // 类或者public方法上是否可能有AOP注解，为false时启动时不需要逐个方法检查是否需要代理
+    // 扫描得到的bean为true；构建时生成的代码预先检查，没有AOP注解的bean为false
+    private boolean proxyCandidate = true;
+
+    // 由@Bean方法创建的bean所在配置类的beanName，扫描得到的bean为null
+    private String factoryBeanName;
 
     public BeanDefinition() {
     }
 
-    public BeanDefinition(String beanName, Class<?> beanClass, Boolean lazy, Boolean singleton) {
+    public BeanDefinition(String beanName, Class<?> beanClass, boolean lazy, boolean singleton) {
         this.beanName = beanName;
         this.beanClass = beanClass;
         this.lazy = lazy;
         this.singleton = singleton;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
     public String getBeanName() {
         return beanName;
     }
@@ -33,19 +81,99 @@ public class BeanDefinition {
         this.beanClass = beanClass;
     }
 
-    public Boolean getLazy() {
+    public boolean getLazy() {
         return lazy;
     }
 
-    public void setLazy(Boolean lazy) {
+    public void setLazy(boolean lazy) {
         this.lazy = lazy;
     }
 
-    public Boolean getSingleton() {
+    public boolean getSingleton() {
         return singleton;
     }
 
-    public void setSingleton(Boolean singleton) {
+    public void setSingleton(boolean singleton) {
         this.singleton = singleton;
     }
+
+    public int getOrder() {
+        return order;
+    }
+
+    public void setOrder(int order) {
+        this.order = order;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Method getDestroyMethod() {
+        return destroyMethod;
+    }
+
+    public void setDestroyMethod(Method destroyMethod) {
+        this.destroyMethod = destroyMethod;
+    }
+
+    public BeanInstantiator getInstantiator() {
+        return instantiator;
+    }
+
+    public void setInstantiator(BeanInstantiator instantiator) {
+        this.instantiator = instantiator;
+    }
+
+    public Executable getConstructorOrFactoryMethod() {
+        return constructorOrFactoryMethod;
+    }
+
+    public void setConstructorOrFactoryMethod(Executable constructorOrFactoryMethod) {
+        this.constructorOrFactoryMethod = constructorOrFactoryMethod;
+    }
+
+    public InjectionPoint[] getConstructorArguments() {
+        return constructorArguments;
+    }
+
+    public void setConstructorArguments(InjectionPoint[] constructorArguments) {
+        this.constructorArguments = constructorArguments;
+    }
+
+    public InjectionPoint[] getFieldInjectionPoints() {
+        return fieldInjectionPoints;
+    }
+
+    public void setFieldInjectionPoints(InjectionPoint[] fieldInjectionPoints) {
+        this.fieldInjectionPoints = fieldInjectionPoints;
+    }
+
+    public boolean getResolved() {
+        return resolved;
+    }
+
+    public void setResolved(boolean resolved) {
+        this.resolved = resolved;
+    }
+
+    public boolean getProxyCandidate() {
+        return proxyCandidate;
+    }
+
+    public void setProxyCandidate(boolean proxyCandidate) {
+        this.proxyCandidate = proxyCandidate;
+    }
+
+    public String getFactoryBeanName() {
+        return factoryBeanName;
+    }
+
+    public void setFactoryBeanName(String factoryBeanName) {
+        this.factoryBeanName = factoryBeanName;
+    }
 }
@@ -0,0 +1,337 @@
+package com.bytedance.spring.ioc.bean;
+
+import java.util.Arrays;
+
+/**
+ * 容器中所有BeanDefinition的统一登记处
+ * 每个bean在注册时分配一个从0开始的int id，BeanDefinition按id存放在数组中
+ * name -> id 以及 class -> id 使用开放寻址的紧凑索引，避免HashMap每个entry一个节点对象的开销
+ * 容器启动完成后调用freeze()冻结，此后只读，可以被多个线程无锁地并发读取
+ * 启动后需要增加bean时通过copy()得到一个可以注册的副本，副本中已有bean的id不变，注册完成后由容器整体替换
+ */
+public class BeanDefinitionRegistry {
+
+    private static final int[] NO_IDS = new int[0];
+
+    // 按id存放的所有BeanDefinition
+    private BeanDefinition[] definitions = new BeanDefinition[64];
+
+    // 已注册的数量，同时也是下一个被分配的id
+    private int size;
+
+    // beanName -> id
+    private final IdIndex nameIndex;
+
+    // 扫描得到的beanClass -> id，@Bean方法注册的bean不参与此索引
+    private final IdIndex classIndex;
+
+    // 按类型查找的缓存，key：查询用的类型，value：所有可以赋值给该类型的bean的id
+    private volatile TypeCache typeCache = new TypeCache(16);
+
+    private boolean frozen;
+
+    public BeanDefinitionRegistry() {
+        this(new IdIndex(false, 128), new IdIndex(true, 128));
+    }
+
+    private BeanDefinitionRegistry(IdIndex nameIndex, IdIndex classIndex) {
+        this.nameIndex = nameIndex;
+        this.classIndex = classIndex;
+    }
+
+    /**
+     * 注册一个BeanDefinition并为其分配id，同名检查由调用方负责
+     * @param beanDefinition
+     * @param indexByClass 是否加入class -> id索引
+     * @return 分配的id
+     */
+    public int register(BeanDefinition beanDefinition, boolean indexByClass) {
+        if (frozen) {
+            throw new IllegalStateException("BeanDefinitionRegistry已冻结，不能再注册：" + beanDefinition.getBeanName());
+        }
+        if (size == definitions.length) {
+            definitions = Arrays.copyOf(definitions, size << 1);
+        }
+        int id = size++;
+        definitions[id] = beanDefinition;
+        beanDefinition.setId(id);
+        nameIndex.put(definitions, id);
+        if (indexByClass && classIndex.get(definitions, beanDefinition.getBeanClass()) < 0) {
+            classIndex.put(definitions, id);
+        }
+        // 新注册的bean只改变它可以赋值给的那些类型的查找结果，其余类型的缓存保持不变
+        typeCache = typeCache.withRegistered(beanDefinition.getBeanClass(), id);
+        return id;
+    }
+
+    /**
+     * 复制出一个未冻结的注册表，原注册表不受影响，可以继续被并发读取
+     * 两者共享同一批BeanDefinition对象，id相同，按类型查找的缓存是不可变的，直接共享
+     * @return
+     */
+    public BeanDefinitionRegistry copy() {
+        final BeanDefinitionRegistry copy = new BeanDefinitionRegistry(nameIndex.copy(), classIndex.copy());
+        copy.definitions = Arrays.copyOf(definitions, Math.max(size + 16, definitions.length));
+        copy.size = size;
+        copy.typeCache = typeCache;
+        return copy;
+    }
+
+    /**
+     * 冻结注册表，裁剪多余的数组空间
+     */
+    public void freeze() {
+        if (!frozen) {
+            definitions = Arrays.copyOf(definitions, size);
+            frozen = true;
+        }
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public BeanDefinition get(int id) {
+        return definitions[id];
+    }
+
+    /**
+     * @param beanName
+     * @return beanName对应的id，不存在则返回-1
+     */
+    public int idOf(String beanName) {
+        return nameIndex.get(definitions, beanName);
+    }
+
+    /**
+     * @param beanName
+     * @return beanName对应的BeanDefinition，不存在则返回null
+     */
+    public BeanDefinition find(String beanName) {
+        int id = nameIndex.get(definitions, beanName);
+        return id < 0 ? null : definitions[id];
+    }
+
+    /**
+     * @param beanClass
+     * @return 通过扫描注册的、beanClass恰好为此类型的BeanDefinition，不存在则返回null
+     */
+    public BeanDefinition findByClass(Class<?> beanClass) {
+        int id = classIndex.get(definitions, beanClass);
+        return id < 0 ? null : definitions[id];
+    }
+
+    public String[] getBeanNames() {
+        String[] result = new String[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = definitions[i].getBeanName();
+        }
+        return result;
+    }
+
+    /**
+     * 获取所有beanClass可以赋值给beanType的bean的id，即beanType本身、派生类或者实现类
+     * 结果按类型缓存，返回的数组为共享的缓存，调用方不能修改
+     * @param beanType
+     * @return
+     */
+    public int[] idsAssignableTo(Class<?> beanType) {
+        int[] ids = typeCache.get(beanType);
+        if (ids != null) {
+            return ids;
+        }
+        int count = 0;
+        int[] found = new int[4];
+        for (int i = 0; i < size; i++) {
+            if (beanType.isAssignableFrom(definitions[i].getBeanClass())) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count << 1);
+                }
+                found[count++] = i;
+            }
+        }
+        ids = count == 0 ? NO_IDS : Arrays.copyOf(found, count);
+        synchronized (this) {
+            // 写时复制，读线程看到的永远是完整的表
+            typeCache = typeCache.with(beanType, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * 所有可以赋值给该类型的bean的id，按@Order的值排序，值相同时按注册顺序
+     * @param beanType
+     * @return 新的数组，调用方可以修改
+     */
+    public int[] orderedIdsAssignableTo(Class<?> beanType) {
+        final int[] ids = idsAssignableTo(beanType);
+        final Integer[] boxed = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxed[i] = ids[i];
+        }
+        // 排序是稳定的，ids本身是按注册顺序排列的
+        Arrays.sort(boxed, (a, b) -> Integer.compare(definitions[a].getOrder(), definitions[b].getOrder()));
+        final int[] ordered = new int[ids.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = boxed[i];
+        }
+        return ordered;
+    }
+
+    /**
+     * beanName或beanClass -> id 的开放寻址索引，槽中只存id + 1（0表示空槽），比较时从对应的BeanDefinition中取出key，
+     * 不需要另外保存一份key的数组；装载因子不超过3/4，线性探测下查找平均仍只需比较一两次
+     */
+    private static final class IdIndex {
+        // true时key为beanClass（Class的equals即为==），否则为beanName
+        private final boolean byClass;
+        private int[] slots;
+        private int count;
+
+        IdIndex(boolean byClass, int capacity) {
+            this.byClass = byClass;
+            this.slots = new int[capacity];
+        }
+
+        IdIndex copy() {
+            final IdIndex copy = new IdIndex(byClass, 0);
+            copy.slots = slots.clone();
+            copy.count = count;
+            return copy;
+        }
+
+        private Object keyOf(BeanDefinition beanDefinition) {
+            return byClass ? beanDefinition.getBeanClass() : beanDefinition.getBeanName();
+        }
+
+        int get(BeanDefinition[] definitions, Object key) {
+            final int[] slots = this.slots;
+            final int mask = slots.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            int slot;
+            while ((slot = slots[i]) != 0) {
+                final Object k = keyOf(definitions[slot - 1]);
+                if (k == key || k.equals(key)) {
+                    return slot - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+
+        /**
+         * @param definitions 已经在id处放入了对应的BeanDefinition
+         */
+        void put(BeanDefinition[] definitions, int id) {
+            if ((count + 1) << 2 > slots.length * 3) {
+                resize(definitions);
+            }
+            final Object key = keyOf(definitions[id]);
+            final int mask = slots.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (slots[i] != 0) {
+                if (keyOf(definitions[slots[i] - 1]).equals(key)) {
+                    slots[i] = id + 1;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = id + 1;
+            count++;
+        }
+
+        private void resize(BeanDefinition[] definitions) {
+            final int[] oldSlots = slots;
+            slots = new int[Math.max(16, oldSlots.length << 1)];
+            count = 0;
+            for (int slot : oldSlots) {
+                if (slot != 0) {
+                    put(definitions, slot - 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 不可变的 Class -> int[] 开放寻址表，每次加入新的类型都会复制出一张新表
+     */
+    private static final class TypeCache {
+        private final Class<?>[] keys;
+        private final int[][] values;
+        private final int count;
+
+        TypeCache(int capacity) {
+            this(new Class<?>[capacity], new int[capacity][], 0);
+        }
+
+        private TypeCache(Class<?>[] keys, int[][] values, int count) {
+            this.keys = keys;
+            this.values = values;
+            this.count = count;
+        }
+
+        int[] get(Class<?> type) {
+            final int mask = keys.length - 1;
+            int i = spread(type.hashCode()) & mask;
+            Class<?> k;
+            while ((k = keys[i]) != null) {
+                if (k == type) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        TypeCache with(Class<?> type, int[] ids) {
+            if (get(type) != null) {
+                return this;
+            }
+            int capacity = (count + 1) << 1 > keys.length ? keys.length << 1 : keys.length;
+            Class<?>[] newKeys = new Class<?>[capacity];
+            int[][] newValues = new int[capacity][];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    insert(newKeys, newValues, keys[i], values[i]);
+                }
+            }
+            insert(newKeys, newValues, type, ids);
+            return new TypeCache(newKeys, newValues, count + 1);
+        }
+
+        /**
+         * 注册了一个新的bean之后的缓存：只有beanClass可以赋值给的类型的结果追加了新的id，其余结果原样共享
+         */
+        TypeCache withRegistered(Class<?> beanClass, int id) {
+            int[][] newValues = null;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && keys[i].isAssignableFrom(beanClass)) {
+                    if (newValues == null) {
+                        newValues = values.clone();
+                    }
+                    newValues[i] = Arrays.copyOf(values[i], values[i].length + 1);
+                    newValues[i][values[i].length] = id;
+                }
+            }
+            return newValues == null ? this : new TypeCache(keys, newValues, count);
+        }
+
+        private static void insert(Class<?>[] keys, int[][] values, Class<?> type, int[] ids) {
+            final int mask = keys.length - 1;
+            int i = spread(type.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = type;
+            values[i] = ids;
+        }
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,9 @@
+package com.bytedance.spring.ioc.bean;
+
+/**
+ * 创建bean实例的方式，参数为已经从容器中解析好的构造器参数
+ */
+public interface BeanInstantiator {
+
+    Object instantiate(Object[] args) throws Exception;
+}
@@ -0,0 +1,11 @@
+package com.bytedance.spring.ioc.bean;
+
+/**
+ * 读写bean中一个需要注入的域
+ */
+public interface FieldAccessor {
+
+    Object get(Object bean) throws Exception;
+
+    void set(Object bean, Object value) throws Exception;
+}
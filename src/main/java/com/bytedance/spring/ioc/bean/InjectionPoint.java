@@ -0,0 +1,111 @@
+package com.bytedance.spring.ioc.bean;
+
+import java.lang.reflect.Field;
+
+/**
+ * 描述一个需要由容器注入的位置，例如构造器的一个参数或者标注了@Autowired、@Value的域
+ * 标注了@Value的注入配置值，标注了@Qualifier的按beanName注入，否则按类型注入；
+ * List、数组、Map类型的注入点注入所有该类型的bean
+ */
+public class InjectionPoint {
+
+    /**
+     * 注入的方式
+     */
+    public enum Kind {
+        // 直接注入bean
+        BEAN,
+        // 注入Provider，调用get()时才获取bean
+        PROVIDER,
+        // 注入List<T>，包含所有T类型的bean，按@Order排序
+        LIST,
+        // 注入T[]，与LIST相同
+        ARRAY,
+        // 注入Map<String, T>，key为beanName，按@Order排序
+        MAP;
+
+        /**
+         * 是否注入的是多个bean组成的集合
+         * @return
+         */
+        public boolean isCollection() {
+            return this == LIST || this == ARRAY || this == MAP;
+        }
+    }
+
+    private final Kind kind;
+
+    // 需要注入的域，构造器参数或者由生成的代码创建时为null
+    private final Field field;
+
+    // 读写需要注入的域，构造器参数时为null
+    private final FieldAccessor accessor;
+
+    // 需要注入的类型
+    private final Class<?> type;
+
+    // 需要从容器中查找的bean的类型，Provider<T>、List<T>、T[]、Map<String, T>时为T，其余情况与type相同
+    private final Class<?> dependencyType;
+
+    // @Qualifier指定的beanName，没有则为null
+    private final String qualifier;
+
+    // @Value指定的值，没有则为null
+    private final String value;
+
+    // 注入位置的描述，用于日志和异常信息
+    private final String description;
+
+    public InjectionPoint(Class<?> type, String qualifier, String value, String description) {
+        this(Kind.BEAN, null, null, type, type, qualifier, value, description);
+    }
+
+    public InjectionPoint(Kind kind, Field field, FieldAccessor accessor, Class<?> type, Class<?> dependencyType,
+                          String qualifier, String value, String description) {
+        this.kind = kind;
+        this.field = field;
+        this.accessor = accessor;
+        this.type = type;
+        this.dependencyType = dependencyType;
+        this.qualifier = qualifier;
+        this.value = value;
+        this.description = description;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public FieldAccessor getAccessor() {
+        return accessor;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Class<?> getDependencyType() {
+        return dependencyType;
+    }
+
+    public String getQualifier() {
+        return qualifier;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
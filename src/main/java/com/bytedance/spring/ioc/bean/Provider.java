@@ -0,0 +1,12 @@
+package com.bytedance.spring.ioc.bean;
+
+/**
+ * 可以注入到@Autowired域或者构造器参数中的延迟获取方式，例如：
+ * \@Autowired private Provider&lt;ReportService&gt; reportService;
+ * 注入时并不会创建目标bean，第一次调用get()时才创建；目标为原型模式时每次get()都得到新的对象
+ * @param <T>
+ */
+public interface Provider<T> {
+
+    T get() throws Exception;
+}
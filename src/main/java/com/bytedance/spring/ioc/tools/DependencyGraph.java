@@ -0,0 +1,433 @@
+package com.bytedance.spring.ioc.tools;
+
+import com.bytedance.spring.ioc.bean.BeanDefinition;
+import com.bytedance.spring.ioc.bean.BeanDefinitionRegistry;
+import com.bytedance.spring.ioc.bean.InjectionPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 由所有BeanDefinition的注入信息构成的依赖图，节点为bean的id，边u -> v表示u依赖v
+ * 边分为两类：
+ * 可以延后的边：单例bean的@Autowired域，对象实例化后提前暴露，依赖在之后注入，所以这类边上的循环可以解决
+ * 阻塞的边：构造器参数、@Bean方法参数，以及原型模式bean的所有依赖，在依赖创建好之前对象无法被其它bean引用
+ * 一个只由阻塞的边组成的环无论以什么顺序创建都无法解决
+ * Provider类型的注入点只检查目标bean是否存在且唯一，不产生边，因为目标bean直到调用get()时才创建
+ * List、数组、Map类型的注入点依赖所有该类型的bean（不包括自身），没有这样的bean时注入空集合，不算问题
+ * 空闲后会被释放的bean（@ExpireAfterIdle）注入的是按接口生成的作用域代理，有需要拦截的方法的bean本身就是JDK动态代理，
+ * 这两类bean的注入点（包括Provider和集合的元素类型）必须是接口
+ * 尚未解析注入信息的懒加载bean没有边，第一次创建前解析后通过{@link #analyze(BeanDefinitionRegistry, boolean[], BeanDefinition)}加入
+ */
+public class DependencyGraph {
+
+    private static final int[] NO_TARGETS = new int[0];
+
+    private static final boolean[] NO_BLOCKING = new boolean[0];
+
+    private final BeanDefinitionRegistry registry;
+
+    private final int size;
+
+    // 每个节点依赖的节点
+    private final int[][] targets;
+
+    // 与targets一一对应，表示这条边是否是阻塞的
+    private final boolean[][] blocking;
+
+    // 按id记录bean是否会被代理
+    private final boolean[] proxied;
+
+    // 构建图时发现的缺失、不唯一的依赖
+    private final List<String> problems = new ArrayList<>();
+
+    // 构建一个节点的边时使用的临时数组
+    private int[] edgeTargets;
+
+    private boolean[] edgeBlocking;
+
+    private int edgeCount;
+
+    private DependencyGraph(BeanDefinitionRegistry registry, boolean[] proxied) {
+        this.registry = registry;
+        this.size = registry.size();
+        this.targets = new int[size][];
+        this.blocking = new boolean[size][];
+        this.proxied = Arrays.copyOf(proxied, size);
+    }
+
+    public static DependencyGraph build(BeanDefinitionRegistry registry) {
+        return build(registry, new boolean[0]);
+    }
+
+    /**
+     * @param registry
+     * @param proxied 按id记录bean是否会被代理，用于检查按类注入代理对象的注入点
+     * @return
+     */
+    public static DependencyGraph build(BeanDefinitionRegistry registry, boolean[] proxied) {
+        return build(registry, proxied, -1);
+    }
+
+    /**
+     * @param include 虽然还没有标记为已解析、也要加入依赖图的bean的id，没有时为-1
+     */
+    private static DependencyGraph build(BeanDefinitionRegistry registry, boolean[] proxied, int include) {
+        final DependencyGraph graph = new DependencyGraph(registry, proxied);
+        for (int id = 0; id < graph.size; id++) {
+            graph.edgesOf(id, include);
+        }
+        return graph;
+    }
+
+    /**
+     * 把一个刚刚解析了注入信息、还没有标记为已解析的懒加载bean加入依赖图
+     * 它会被代理时，已有的按类注入它的注入点也需要检查，此时重新分析整个依赖图，返回完整的结果；
+     * 否则只检查它自己的注入点，并找出经过它的循环依赖：其它bean的注入点已经检查过，只用来沿依赖查找能够回到它的路径
+     * @param registry
+     * @param proxied 按id记录bean是否会被代理，包括这个bean
+     * @param beanDefinition
+     * @return 不需要重新分析整个依赖图时，problems只有它的注入点的问题和经过它的无法解决的循环依赖，
+     * cycles只有经过它的循环依赖，不计算关键路径
+     */
+    public static DependencyReport analyze(BeanDefinitionRegistry registry, boolean[] proxied, BeanDefinition beanDefinition) {
+        final int id = beanDefinition.getId();
+        if (id < proxied.length && proxied[id]) {
+            return build(registry, proxied, id).analyze();
+        }
+        final DependencyGraph graph = new DependencyGraph(registry, proxied);
+        graph.edgesOf(id, id);
+        final List<String> problems = new ArrayList<>(graph.problems);
+        final List<List<String>> cycles = new ArrayList<>();
+        if (problems.isEmpty()) {
+            final int[] blockingCycle = graph.cycleThrough(id, true);
+            if (blockingCycle.length > 0) {
+                problems.add("无法解决的循环依赖（构造器注入或原型模式）：" + graph.names(blockingCycle));
+            }
+            final int[] cycle = graph.cycleThrough(id, false);
+            if (cycle.length > 0) {
+                cycles.add(graph.names(cycle));
+            }
+        }
+        return new DependencyReport(problems, cycles, Collections.<String>emptyList());
+    }
+
+    /**
+     * 按需构建一个节点的边，尚未解析的懒加载bean没有边
+     */
+    private int[] edgesOf(int id, int include) {
+        if (targets[id] == null) {
+            final BeanDefinition beanDefinition = registry.get(id);
+            if (beanDefinition.getResolved() || id == include) {
+                addEdges(beanDefinition);
+            } else {
+                targets[id] = NO_TARGETS;
+                blocking[id] = NO_BLOCKING;
+            }
+        }
+        return targets[id];
+    }
+
+    /**
+     * 经过一个节点的循环：从它出发能够到达、又能够沿依赖回到它的所有节点，其它节点的边按需构建
+     * @param start
+     * @param onlyBlocking 是否只考虑阻塞的边
+     * @return 经过它的循环中的所有节点，没有时为空数组
+     */
+    private int[] cycleThrough(int start, boolean onlyBlocking) {
+        final List<Integer> reachable = new ArrayList<>();
+        final boolean[] visited = new boolean[size];
+        final boolean[] returns = new boolean[size];
+        visited[start] = true;
+        reachable.add(start);
+        boolean cycle = false;
+        for (int i = 0; i < reachable.size(); i++) {
+            final int v = reachable.get(i);
+            final int[] edges = edgesOf(v, start);
+            for (int e = 0; e < edges.length; e++) {
+                if (onlyBlocking && !blocking[v][e]) {
+                    continue;
+                }
+                if (edges[e] == start) {
+                    cycle = true;
+                    returns[v] = true;
+                } else if (!visited[edges[e]]) {
+                    visited[edges[e]] = true;
+                    reachable.add(edges[e]);
+                }
+            }
+        }
+        if (!cycle) {
+            return NO_TARGETS;
+        }
+        // 能够一步到达已知可以回到start的节点的，也可以回到start
+        returns[start] = true;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int v : reachable) {
+                if (returns[v]) {
+                    continue;
+                }
+                final int[] edges = targets[v];
+                for (int e = 0; e < edges.length; e++) {
+                    if ((!onlyBlocking || blocking[v][e]) && returns[edges[e]]) {
+                        returns[v] = changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        final int[] nodes = new int[reachable.size()];
+        int count = 0;
+        for (int v : reachable) {
+            if (returns[v]) {
+                nodes[count++] = v;
+            }
+        }
+        return Arrays.copyOf(nodes, count);
+    }
+
+    private void addEdges(BeanDefinition beanDefinition) {
+        final int id = beanDefinition.getId();
+        final boolean prototype = !beanDefinition.getSingleton();
+        final InjectionPoint[] arguments = beanDefinition.getConstructorArguments();
+        final InjectionPoint[] fields = beanDefinition.getFieldInjectionPoints();
+        edgeTargets = new int[arguments.length + fields.length];
+        edgeBlocking = new boolean[edgeTargets.length];
+        edgeCount = 0;
+        for (InjectionPoint argument : arguments) {
+            addEdges(beanDefinition, argument, true);
+        }
+        for (InjectionPoint field : fields) {
+            addEdges(beanDefinition, field, prototype);
+        }
+        targets[id] = Arrays.copyOf(edgeTargets, edgeCount);
+        blocking[id] = Arrays.copyOf(edgeBlocking, edgeCount);
+    }
+
+    private void addEdges(BeanDefinition owner, InjectionPoint injectionPoint, boolean isBlocking) {
+        if (injectionPoint.getKind().isCollection()) {
+            for (int target : registry.idsAssignableTo(injectionPoint.getDependencyType())) {
+                if (target != owner.getId()) {
+                    checkProxy(owner, injectionPoint, target);
+                    addEdge(target, isBlocking);
+                }
+            }
+            return;
+        }
+        final int target = resolve(owner, injectionPoint);
+        if (target >= 0) {
+            checkProxy(owner, injectionPoint, target);
+            if (injectionPoint.getKind() == InjectionPoint.Kind.BEAN) {
+                addEdge(target, isBlocking);
+            }
+        }
+    }
+
+    /**
+     * 注入的是代理对象时，注入点只能是接口类型（或Object），否则注入或者调用Provider.get()时会类型转换失败
+     * Provider.get()拿到的是bean本身而不是作用域代理，所以Provider只检查bean是否会被代理
+     */
+    private void checkProxy(BeanDefinition owner, InjectionPoint injectionPoint, int target) {
+        final Class<?> type = injectionPoint.getDependencyType();
+        if (type.isInterface() || type == Object.class) {
+            return;
+        }
+        final BeanDefinition targetDefinition = registry.get(target);
+        if (targetDefinition.getIdleTimeout() > 0 && injectionPoint.getKind() != InjectionPoint.Kind.PROVIDER) {
+            problems.add(owner.getBeanName() + "：" + injectionPoint + "依赖的bean[" + targetDefinition.getBeanName()
+                    + "]空闲后会被释放，只能按接口注入，或者改为注入Provider");
+        } else if (proxied[target]) {
+            problems.add(owner.getBeanName() + "：" + injectionPoint + "依赖的bean[" + targetDefinition.getBeanName()
+                    + "]有需要拦截的方法，是JDK动态代理，只能按接口注入");
+        }
+    }
+
+    private void addEdge(int target, boolean isBlocking) {
+        if (edgeCount == edgeTargets.length) {
+            edgeTargets = Arrays.copyOf(edgeTargets, Math.max(4, edgeCount << 1));
+            edgeBlocking = Arrays.copyOf(edgeBlocking, edgeTargets.length);
+        }
+        edgeTargets[edgeCount] = target;
+        edgeBlocking[edgeCount++] = isBlocking;
+    }
+
+    /**
+     * 找到注入点依赖的bean，找不到或者不唯一时记录问题
+     * @return 依赖的bean的id，不需要依赖bean或者无法解析时返回-1
+     */
+    private int resolve(BeanDefinition owner, InjectionPoint injectionPoint) {
+        if (injectionPoint.getValue() != null) {
+            return -1;
+        }
+        if (injectionPoint.getQualifier() != null) {
+            final BeanDefinition target = registry.find(injectionPoint.getQualifier());
+            if (target == null) {
+                problems.add(owner.getBeanName() + "：" + injectionPoint + "依赖的bean[" + injectionPoint.getQualifier() + "]不存在");
+                return -1;
+            }
+            if (!injectionPoint.getDependencyType().isAssignableFrom(target.getBeanClass())) {
+                problems.add(owner.getBeanName() + "：" + injectionPoint + "需要" + injectionPoint.getDependencyType().getName()
+                        + "，但bean[" + target.getBeanName() + "]的类型是" + target.getBeanClass().getName());
+                return -1;
+            }
+            return target.getId();
+        }
+        final int[] candidates = registry.idsAssignableTo(injectionPoint.getDependencyType());
+        if (candidates.length == 1) {
+            return candidates[0];
+        }
+        if (candidates.length == 0) {
+            problems.add(owner.getBeanName() + "：" + injectionPoint + "需要的类型" + injectionPoint.getDependencyType().getName() + "在容器中不存在");
+        } else {
+            problems.add(owner.getBeanName() + "：" + injectionPoint + "需要的类型" + injectionPoint.getDependencyType().getName()
+                    + "在容器中有多个bean" + names(candidates) + "，请使用@Qualifier指定");
+        }
+        return -1;
+    }
+
+    /**
+     * 分析依赖图：用Tarjan算法找出所有强连通分量，只由阻塞的边组成的强连通分量是无法解决的循环依赖；
+     * 再在强连通分量收缩后的有向无环图上求最长路径，即为关键路径
+     * @return
+     */
+    public DependencyReport analyze() {
+        final List<String> allProblems = new ArrayList<>(problems);
+        for (int[] component : stronglyConnectedComponents(true)) {
+            if (isCycle(component, true)) {
+                allProblems.add("无法解决的循环依赖（构造器注入或原型模式）：" + names(component));
+            }
+        }
+        final List<int[]> components = stronglyConnectedComponents(false);
+        final List<List<String>> cycles = new ArrayList<>();
+        for (int[] component : components) {
+            if (isCycle(component, false)) {
+                cycles.add(names(component));
+            }
+        }
+        return new DependencyReport(allProblems, cycles, criticalPath(components));
+    }
+
+    /**
+     * 在强连通分量收缩后的图上求最长路径，路径长度按bean的数量计算
+     * Tarjan算法输出强连通分量的顺序保证了被依赖的分量先于依赖它的分量输出，按此顺序动态规划即可
+     */
+    private List<String> criticalPath(List<int[]> components) {
+        final int[] componentOf = new int[size];
+        for (int c = 0; c < components.size(); c++) {
+            for (int node : components.get(c)) {
+                componentOf[node] = c;
+            }
+        }
+        final int[] depth = new int[components.size()];
+        final int[] next = new int[components.size()];
+        int start = -1;
+        for (int c = 0; c < components.size(); c++) {
+            next[c] = -1;
+            for (int node : components.get(c)) {
+                for (int target : targets[node]) {
+                    final int d = componentOf[target];
+                    if (d != c && (next[c] < 0 || depth[d] > depth[next[c]])) {
+                        next[c] = d;
+                    }
+                }
+            }
+            depth[c] = components.get(c).length + (next[c] < 0 ? 0 : depth[next[c]]);
+            if (start < 0 || depth[c] > depth[start]) {
+                start = c;
+            }
+        }
+        // 从依赖最深的bean开始的链，反转后按创建顺序排列
+        final List<String> path = new ArrayList<>();
+        for (int c = start; c >= 0; c = next[c]) {
+            final int[] component = components.get(c);
+            path.add(component.length == 1 ? registry.get(component[0]).getBeanName() : names(component).toString());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private boolean isCycle(int[] component, boolean onlyBlocking) {
+        if (component.length > 1) {
+            return true;
+        }
+        final int node = component[0];
+        for (int e = 0; e < targets[node].length; e++) {
+            if (targets[node][e] == node && (!onlyBlocking || blocking[node][e])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 非递归的Tarjan算法，避免依赖链很长时栈溢出
+     * @param onlyBlocking 是否只考虑阻塞的边
+     * @return 所有强连通分量，被依赖的分量在前
+     */
+    private List<int[]> stronglyConnectedComponents(boolean onlyBlocking) {
+        final List<int[]> components = new ArrayList<>();
+        final int[] index = new int[size];
+        final int[] low = new int[size];
+        final int[] edgePosition = new int[size];
+        final boolean[] onStack = new boolean[size];
+        final int[] stack = new int[size];
+        final int[] callStack = new int[size];
+        Arrays.fill(index, -1);
+        int counter = 0;
+        int sp = 0;
+        for (int root = 0; root < size; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int csp = 0;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callStack[csp++] = root;
+            while (csp > 0) {
+                final int v = callStack[csp - 1];
+                if (edgePosition[v] < targets[v].length) {
+                    final int e = edgePosition[v]++;
+                    if (onlyBlocking && !blocking[v][e]) {
+                        continue;
+                    }
+                    final int w = targets[v][e];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callStack[csp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                csp--;
+                if (low[v] == index[v]) {
+                    int start = sp;
+                    do {
+                        onStack[stack[--start]] = false;
+                    } while (stack[start] != v);
+                    components.add(Arrays.copyOfRange(stack, start, sp));
+                    sp = start;
+                }
+                if (csp > 0) {
+                    final int parent = callStack[csp - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return components;
+    }
+
+    private List<String> names(int[] ids) {
+        final List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(registry.get(id).getBeanName());
+        }
+        return names;
+    }
+}
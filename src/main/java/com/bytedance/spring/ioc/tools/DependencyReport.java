@@ -0,0 +1,45 @@
+package com.bytedance.spring.ioc.tools;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 依赖图的检查结果
+ */
+public class DependencyReport {
+
+    // 缺失、不唯一的依赖以及无法解决的循环依赖
+    private final List<String> problems;
+
+    // 可以通过提前暴露半成品对象解决的循环依赖，每个元素为一个强连通分量中的所有beanName
+    private final List<List<String>> cycles;
+
+    // 依赖图中最长的依赖链，从最先需要创建的bean开始；链上的bean只能依次创建，决定了并行启动的下限
+    private final List<String> criticalPath;
+
+    public DependencyReport(List<String> problems, List<List<String>> cycles, List<String> criticalPath) {
+        this.problems = Collections.unmodifiableList(problems);
+        this.cycles = Collections.unmodifiableList(cycles);
+        this.criticalPath = Collections.unmodifiableList(criticalPath);
+    }
+
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    public List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    public List<String> getCriticalPath() {
+        return criticalPath;
+    }
+
+    @Override
+    public String toString() {
+        return "DependencyReport{" +
+                "problems=" + problems +
+                ", cycles=" + cycles +
+                ", criticalPath=" + criticalPath + "}";
+    }
+}
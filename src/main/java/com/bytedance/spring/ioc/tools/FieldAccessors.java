@@ -0,0 +1,87 @@
+package com.bytedance.spring.ioc.tools;
+
+import com.bytedance.spring.ioc.bean.FieldAccessor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class FieldAccessors {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * 由直接读写域的代码构成FieldAccessor，供生成的代码使用，例如：
+     * FieldAccessors.of(b -&gt; ((Jack) b).bean, (b, v) -&gt; ((Jack) b).bean = (Bean) v)
+     * @param getter
+     * @param setter
+     * @return
+     */
+    public static FieldAccessor of(Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        return new FieldAccessor() {
+            @Override
+            public Object get(Object bean) {
+                return getter.apply(bean);
+            }
+
+            @Override
+            public void set(Object bean, Object value) {
+                setter.accept(bean, value);
+            }
+        };
+    }
+
+    /**
+     * 通过MethodHandle读写域，final域无法生成setter时退回到Field.set
+     * @param field
+     * @return
+     */
+    public static FieldAccessor forField(Field field) {
+        field.setAccessible(true);
+        final MethodHandle getter;
+        MethodHandle setter;
+        try {
+            getter = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            setter = MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            setter = null;
+        }
+        final MethodHandle finalSetter = setter;
+        return new FieldAccessor() {
+            @Override
+            public Object get(Object bean) throws Exception {
+                try {
+                    return (Object) getter.invokeExact(bean);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+
+            @Override
+            public void set(Object bean, Object value) throws Exception {
+                if (finalSetter == null) {
+                    field.set(bean, value);
+                    return;
+                }
+                try {
+                    finalSetter.invokeExact(bean, value);
+                } catch (Exception | Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    throw new IllegalStateException(t);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.bytedance.spring.ioc.tools;
+
+import com.bytedance.spring.ioc.bean.BeanInstantiator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+public class Instantiators {
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * 将构造器转换为BeanInstantiator
+     * 构造器被预先转换成(Object[])Object形式的MethodHandle，访问检查在转换时一次性完成，
+     * 调用时不会像Constructor.newInstance那样每次检查访问权限，构造器抛出的异常也不会被包装成InvocationTargetException
+     * MethodHandle保存在lambda的域中而不是常量，JIT不会像直接调用构造器那样把它内联，完全没有反射的实例化见构建时生成的代码
+     * @param constructor
+     * @return
+     */
+    public static BeanInstantiator forConstructor(Constructor<?> constructor) throws IllegalAccessException {
+        constructor.setAccessible(true);
+        return forHandle(MethodHandles.lookup().unreflectConstructor(constructor), constructor.getParameterCount());
+    }
+
+    /**
+     * 将@Bean方法转换为BeanInstantiator，args[0]为配置类的对象，其余为方法的参数
+     * @param method
+     * @return
+     */
+    public static BeanInstantiator forFactoryMethod(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        MethodHandle handle = MethodHandles.lookup().unreflect(method);
+        if (Modifier.isStatic(method.getModifiers())) {     //静态方法不需要配置类的对象，忽略args[0]
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return forHandle(handle, method.getParameterCount() + 1);
+    }
+
+    private static BeanInstantiator forHandle(MethodHandle target, int parameterCount) {
+        final MethodHandle handle = target.asSpreader(Object[].class, parameterCount).asType(SPREAD_TYPE);
+        return args -> {
+            try {
+                return (Object) handle.invokeExact(args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        };
+    }
+}
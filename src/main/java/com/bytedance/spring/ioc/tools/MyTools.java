@@ -87,8 +87,8 @@ public class MyTools {
                         // 去掉后面的".class" 获取真正的类名
                         String className = name.substring(packageName.length() + 1, name.length() - 6);
                         try {
-                            // 添加到classes
-                            classes.add(Class.forName(packageName + '.' + className));
+                            // 添加到classes，与扫描目录时一样使用线程上下文类加载器，才能加载到插件jar中的类
+                            classes.add(Thread.currentThread().getContextClassLoader().loadClass(packageName + '.' + className));
                         } catch (ClassNotFoundException e) {
                             // .error("添加用户自定义视图类错误 找不到此类的.class文件");
                             e.printStackTrace();
@@ -0,0 +1,29 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.async.Assembly;
+import com.bytedance.spring.bean.async.Part;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+/**
+ * 检查getBeanAsync创建bean时原型模式的依赖只构造一次
+ */
+public class AsyncCreationTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.async");
+        final Assembly assembly = (Assembly) context.getBeanAsync("assembly").join();
+        check(assembly.getPart() != null, "原型模式的依赖应当已经注入");
+        check(Part.CONSTRUCTIONS.get() == 1, "原型模式的依赖应当只构造一次，实际" + Part.CONSTRUCTIONS.get() + "次");
+
+        final Part part = (Part) context.getBeanAsync("part").join();
+        check(part != assembly.getPart() && Part.CONSTRUCTIONS.get() == 2, "异步获取原型模式的bean应当只构造一个新对象");
+        context.close();
+        System.out.println("done");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
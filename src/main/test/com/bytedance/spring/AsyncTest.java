@@ -0,0 +1,77 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.aop.async.AsyncExecutors;
+import com.bytedance.spring.bean.task.Task;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.context.impl.Environment;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 检查@Async：方法返回的Future失败时调用方拿到的是方法本身的异常；
+ * 按summer.async.executor选择虚拟线程或者平台线程池，JDK 21及以上检查确实在虚拟线程中执行，以下检查退回到平台线程池
+ */
+public class AsyncTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.task");
+        try {
+            final Task task = context.getBean("defaultTask", Task.class);
+            try {
+                task.fail().get();
+                throw new IllegalStateException("fail应当失败");
+            } catch (ExecutionException e) {
+                check(e.getCause() instanceof IllegalArgumentException, "异常应当是方法本身抛出的异常，实际是" + e.getCause());
+            }
+            final Thread thread = task.currentThread().get();
+            check(thread != Thread.currentThread(), "@Async方法应当在其它线程中执行");
+            check(isVirtual(thread) == (isVirtualMethod() != null), "默认在支持虚拟线程时使用虚拟线程");
+        } finally {
+            context.close();
+        }
+
+        check(isVirtual(run("virtual")) == (isVirtualMethod() != null), "virtual在支持时使用虚拟线程，否则退回平台线程池");
+        final Thread platform = run("platform");
+        check(!isVirtual(platform) && platform.getName().startsWith("summer-async-"), "platform使用平台线程池");
+        System.out.println("done");
+    }
+
+    /**
+     * 用指定类型的Executor执行一个任务，返回执行它的线程
+     */
+    private static Thread run(String type) throws Exception {
+        final Properties properties = new Properties();
+        properties.setProperty(AsyncExecutors.EXECUTOR_TYPE, type);
+        final ExecutorService executor = AsyncExecutors.create(new Environment(properties));
+        try {
+            return executor.submit(Thread::currentThread).get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        final Method isVirtual = isVirtualMethod();
+        return isVirtual != null && (Boolean) isVirtual.invoke(thread);
+    }
+
+    /**
+     * @return JDK 21以下返回null
+     */
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.cache.Catalog;
+import com.bytedance.spring.bean.cache.DefaultCatalog;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.exception.NoSuchBeanException;
+
+/**
+ * 检查按类型查找bean：需要代理的bean只能按接口找到，按类查找返回null；找不到bean时抛出的异常不记录调用栈
+ */
+public class BeanLookupTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.cache");
+        try {
+            check(context.findBean(Catalog.class) != null, "按接口应当找到代理对象");
+            check(context.findBean(DefaultCatalog.class) == null, "代理对象按类查找应当返回null");
+            check(context.findBean("defaultCatalog", DefaultCatalog.class) == null, "代理对象按名称和类查找应当返回null");
+            check(context.findBean("missing") == null, "不存在的bean应当返回null");
+            try {
+                context.getBean("missing");
+                throw new IllegalStateException("不存在的bean应当抛出NoSuchBeanException");
+            } catch (NoSuchBeanException e) {
+                check(e.getStackTrace().length == 0, "NoSuchBeanException不应当记录调用栈");
+            }
+        } finally {
+            context.close();
+        }
+        System.out.println("done");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
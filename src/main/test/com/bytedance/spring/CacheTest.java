@@ -0,0 +1,41 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.cache.Catalog;
+import com.bytedance.spring.bean.cache.DefaultCatalog;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * 检查@Cacheable：共享同一个缓存的方法参数相同时不会互相覆盖，同时标注了@Async的方法异常完成时不缓存
+ */
+public class CacheTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.cache");
+        try {
+            final Catalog catalog = context.getBean("defaultCatalog", Catalog.class);
+            check("AB".equals(catalog.upper("Ab")), "upper");
+            check("ab".equals(catalog.lower("Ab")), "共享缓存的方法参数相同时不应当取到另一个方法的结果");
+            check("AB".equals(catalog.upper("Ab")), "共享缓存的方法各自命中");
+
+            try {
+                catalog.load("x").join();
+                throw new IllegalStateException("第一次加载应当失败");
+            } catch (CompletionException expected) {
+                // 第一次加载失败
+            }
+            check("x".equals(catalog.load("x").join()) && DefaultCatalog.LOADS.get() == 2, "异常完成的结果不应当被缓存");
+            check("x".equals(catalog.load("x").join()) && DefaultCatalog.LOADS.get() == 2, "成功的结果应当被缓存");
+        } finally {
+            context.close();
+        }
+        System.out.println("done");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.slow.Gate;
+import com.bytedance.spring.context.impl.ContextCache;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.context.impl.Environment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 检查ContextCache的命中、未命中计数，markDirty，按容量淘汰以及系统属性变化后重新启动，
+ * 以及启动过程中（Gate的构造方法停住启动）另一个线程等待同一个容器、其它配置不会淘汰正在启动的容器
+ * 容器关闭时清空一级缓存，之后再获取单例会重新创建，以此判断容器是否已经被关闭
+ */
+public class ContextCacheTest {
+
+    private static final String BEANS = "com.bytedance.spring.bean";
+
+    private static final String ALL = "com.bytedance.spring";
+
+    private static final String ASYNC = "com.bytedance.spring.bean.async";
+
+    private static final String SLOW = "com.bytedance.spring.bean.slow";
+
+    public static void main(String[] args) throws Exception {
+        final ContextCache cache = new ContextCache(1);
+
+        final DefaultApplicationContext first = cache.get(null, BEANS);
+        final Object jack = first.getBean("jack");
+        check(cache.get(null, BEANS) == first, "相同配置应当复用容器");
+        check(cache.getHitCount() == 1 && cache.getMissCount() == 1, "命中1次、未命中1次");
+
+        cache.markDirty(null, BEANS);
+        check(first.getBean("jack") != jack, "markDirty应当关闭容器");
+        final DefaultApplicationContext second = cache.get(null, BEANS);
+        check(second != first && cache.getMissCount() == 2, "markDirty之后应当重新启动");
+
+        final Object secondJack = second.getBean("jack");
+        final DefaultApplicationContext other = cache.get(null, ALL);
+        check(cache.size() == 1, "超过容量时应当淘汰");
+        check(second.getBean("jack") != secondJack, "被淘汰的容器应当关闭");
+        check(cache.get(null, ALL) == other && cache.getHitCount() == 2, "淘汰后留下的容器应当命中");
+
+        System.setProperty(Environment.LAZY_WARMUP, "true");
+        try {
+            check(cache.get(null, ALL) != other && cache.getMissCount() == 4, "启动时读取过的系统属性变化后应当重新启动");
+        } finally {
+            System.clearProperty(Environment.LAZY_WARMUP);
+        }
+
+        cache.clear();
+        Gate.release = new CountDownLatch(1);
+        final CompletableFuture<DefaultApplicationContext> a = CompletableFuture.supplyAsync(() -> get(cache, SLOW));
+        Gate.ENTERED.await();
+        final long hits = cache.getHitCount();
+        final CompletableFuture<DefaultApplicationContext> b = CompletableFuture.supplyAsync(() -> get(cache, SLOW));
+        while (cache.getHitCount() == hits) {
+            Thread.sleep(1);
+        }
+        cache.get(null, ASYNC);
+        check(cache.size() == 2, "正在启动的容器不应当被淘汰");
+        Gate.release.countDown();
+        Gate.release = null;
+        final DefaultApplicationContext slow = a.join();
+        check(b.join() == slow && cache.getMissCount() == 6, "同时获取同一个配置时只启动一次");
+        final Object gate = slow.getBean("gate");
+        check(slow.getBean("gate") == gate, "等待过的容器不应当被关闭");
+        cache.get(null, ALL);
+        check(cache.size() == 1 && slow.getBean("gate") != gate, "启动完成后可以淘汰");
+        cache.clear();
+        System.out.println("done");
+    }
+
+    private static DefaultApplicationContext get(ContextCache cache, String basePackage) {
+        try {
+            return cache.get(null, basePackage);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
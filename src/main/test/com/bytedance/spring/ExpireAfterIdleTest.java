@@ -0,0 +1,69 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.idle.IdleSession;
+import com.bytedance.spring.bean.idle.Session;
+import com.bytedance.spring.bean.idle.SessionUser;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 检查@ExpireAfterIdle：持续访问时不释放，空闲后释放并调用@PreDestroy，之后通过作用域代理访问时重新创建；
+ * 释放时还有进行中的调用时，等调用结束后才调用@PreDestroy
+ */
+public class ExpireAfterIdleTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.idle");
+        try {
+            final Session session = ((SessionUser) context.getBean("sessionUser")).getSession();
+            check(session.number() == 1, "第一次调用时创建");
+            for (int i = 0; i < 15; i++) {
+                Thread.sleep(20);
+                check(session.number() == 1, "持续访问时不应当释放");
+            }
+            check(IdleSession.DESTROYED.get() == 0, "持续访问时不应当销毁");
+
+            await(() -> IdleSession.DESTROYED.get() == 1, "空闲后应当释放并调用@PreDestroy");
+            check(session.number() == 2 && IdleSession.CREATED.get() == 2, "释放后再次访问应当重新创建");
+
+            final CountDownLatch entered = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final CompletableFuture<Integer> call = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return session.hold(entered, release);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            entered.await();
+            // 超过空闲时间加上若干个检查周期，对象已经被释放，但调用还没有结束
+            Thread.sleep(400);
+            check(IdleSession.DESTROYED.get() == 1, "还有进行中的调用时不应当调用@PreDestroy");
+            release.countDown();
+            check(call.join() == 2, "进行中的调用应当使用原来的对象");
+            await(() -> IdleSession.DESTROYED.get() == 2, "调用结束后应当调用@PreDestroy");
+        } finally {
+            context.close();
+        }
+        System.out.println("done");
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(message);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
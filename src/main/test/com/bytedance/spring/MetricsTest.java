@@ -0,0 +1,81 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.aop.metrics.LatencyHistogram;
+import com.bytedance.spring.aop.metrics.LatencySnapshot;
+import com.bytedance.spring.bean.metrics.Greeter;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+import java.util.Map;
+
+/**
+ * 检查耗时直方图的分位数在1/64的相对误差内，以及@Timed的命名：类上的值是前缀，方法上的值是完整的名称，默认为beanName.方法名
+ */
+public class MetricsTest {
+
+    public static void main(String[] args) throws Exception {
+        checkPercentiles();
+        checkNames();
+        System.out.println("done");
+    }
+
+    private static void checkPercentiles() {
+        final LatencyHistogram small = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            small.record(nanos);
+        }
+        final LatencySnapshot exact = small.snapshot();
+        check(exact.getP50() == 50 && exact.getP90() == 90 && exact.getP99() == 99 && exact.getMax() == 100,
+                "小于128ns时每纳秒一个桶，分位数是精确的：" + exact);
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        final LatencySnapshot snapshot = histogram.snapshot();
+        check(snapshot.getCount() == 1000 && snapshot.getMean() == 500500 && snapshot.getMax() == 1000000, "计数、平均值和最大值：" + snapshot);
+        checkWithin(snapshot.getP50(), 500000, "p50");
+        checkWithin(snapshot.getP90(), 900000, "p90");
+        checkWithin(snapshot.getP99(), 990000, "p99");
+        checkWithin(snapshot.getP999(), 999000, "p999");
+
+        histogram.reset();
+        check(histogram.snapshot().getCount() == 0 && histogram.snapshot().getP99() == 0, "reset之后应当清空");
+    }
+
+    /**
+     * 分位数返回桶内的最大值，不小于实际值，且不超过实际值的1/64
+     */
+    private static void checkWithin(long actual, long expected, String name) {
+        check(actual >= expected && actual <= expected + expected / 64, name + "应当在[" + expected + ", " + (expected + expected / 64) + "]之间，实际是" + actual);
+    }
+
+    private static void checkNames() throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.metrics");
+        try {
+            for (String beanName : new String[]{"prefixedGreeter", "plainGreeter"}) {
+                final Greeter greeter = context.getBean(beanName, Greeter.class);
+                greeter.hello("a");
+                greeter.bye("a");
+            }
+            final Map<String, LatencySnapshot> snapshots = context.getLatencySnapshots();
+            check(snapshots.size() == 3, "应当有3个方法被统计：" + snapshots.keySet());
+            check(count(snapshots, "api.prefixedGreeter.hello") == 1, "类上的@Timed是前缀：" + snapshots.keySet());
+            check(count(snapshots, "greeter.bye") == 1, "方法上的@Timed是完整的名称：" + snapshots.keySet());
+            check(count(snapshots, "plainGreeter.hello") == 1, "没有指定名称时为beanName.方法名：" + snapshots.keySet());
+            check(!snapshots.containsKey("plainGreeter.bye"), "没有@Timed的方法不应当被统计");
+        } finally {
+            context.close();
+        }
+    }
+
+    private static long count(Map<String, LatencySnapshot> snapshots, String name) {
+        final LatencySnapshot snapshot = snapshots.get(name);
+        return snapshot == null ? -1 : snapshot.getCount();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
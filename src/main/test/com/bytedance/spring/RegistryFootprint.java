@@ -0,0 +1,63 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 测量容器本身占用的堆：分别在创建容器之前和之后做一次GC并取类直方图（与jmap -histo:live相同），输出两者的差
+ * 被扫描的类都标注@Lazy时不会创建任何单例，差值就是注册表、索引等容器结构的大小（以及扫描时加载的类的Class对象）
+ * 用法：java -cp &lt;包含被扫描的类的classpath&gt; com.bytedance.spring.RegistryFootprint &lt;basePackage&gt; [行数]
+ */
+public class RegistryFootprint {
+
+    public static void main(String[] args) throws Exception {
+        final String basePackage = args.length > 0 ? args[0] : "com.bytedance.spring";
+        final int rows = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        final Map<String, long[]> before = histogram();
+        final DefaultApplicationContext context = new DefaultApplicationContext(basePackage);
+        final Map<String, long[]> after = histogram();
+        final List<Map.Entry<String, long[]>> diff = new ArrayList<>();
+        long instances = 0;
+        long bytes = 0;
+        for (Map.Entry<String, long[]> entry : after.entrySet()) {
+            final long[] old = before.getOrDefault(entry.getKey(), new long[2]);
+            final long[] delta = {entry.getValue()[0] - old[0], entry.getValue()[1] - old[1]};
+            if (delta[1] != 0) {
+                diff.add(new HashMap.SimpleEntry<>(entry.getKey(), delta));
+                instances += delta[0];
+                bytes += delta[1];
+            }
+        }
+        diff.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        System.out.printf("%d个bean，容器创建前后堆中存活对象的差：%d个对象，%d字节%n", context.getBeanDefinitionCount(), instances, bytes);
+        System.out.printf("%12s %12s  %s%n", "#instances", "#bytes", "class name");
+        for (Map.Entry<String, long[]> entry : diff.subList(0, Math.min(rows, diff.size()))) {
+            System.out.printf("%12d %12d  %s%n", entry.getValue()[0], entry.getValue()[1], entry.getKey());
+        }
+    }
+
+    /**
+     * 通过DiagnosticCommand取类直方图，取之前会先做一次Full GC
+     * @return 类名 -> {对象数, 字节数}
+     */
+    private static Map<String, long[]> histogram() throws Exception {
+        final String output = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[]{new String[0]}, new String[]{String[].class.getName()});
+        final Map<String, long[]> histogram = new HashMap<>();
+        for (String line : output.split("\n")) {
+            final String[] columns = line.trim().split("\\s+");
+            // 形如 "1:  1024  65536  java.lang.String (java.base@17)"
+            if (columns.length >= 4 && columns[0].endsWith(":")) {
+                histogram.put(columns[3], new long[]{Long.parseLong(columns[1]), Long.parseLong(columns[2])});
+            }
+        }
+        return histogram;
+    }
+}
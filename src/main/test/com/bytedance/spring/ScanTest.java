@@ -0,0 +1,62 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.plugin.broken.Broken;
+import com.bytedance.spring.bean.plugin.core.Core;
+import com.bytedance.spring.bean.plugin.ext.Extension;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+import com.bytedance.spring.exception.UnsatisfiedDependencyException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 检查容器启动后的scan：新的bean被注册、创建并注入已有的单例，重复扫描不会重复注册；
+ * 依赖检查失败时整次扫描回滚，同一次扫描到的其它bean也不注册，之后可以重新扫描
+ */
+public class ScanTest {
+
+    private static final String CORE = "com.bytedance.spring.bean.plugin.core";
+
+    private static final String EXT = "com.bytedance.spring.bean.plugin.ext";
+
+    private static final String BROKEN = "com.bytedance.spring.bean.plugin.broken";
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext(CORE);
+        try {
+            final Object core = context.getBean("core");
+            check(context.findBean("extension") == null, "启动时没有扫描ext");
+
+            final List<String> registered = context.scan(EXT);
+            check(registered.equals(Collections.singletonList("extension")), "应当注册extension：" + registered);
+            final Extension extension = context.getBean("extension", Extension.class);
+            check(extension.getCore() == core && context.getBean("core") == core, "新bean应当注入已有的单例，已有的单例不变");
+            check(context.scan(EXT).isEmpty(), "重复扫描不应当重复注册");
+
+            System.setProperty(Broken.ENABLED, "true");
+            try {
+                context.scan(BROKEN);
+                throw new IllegalStateException("依赖缺失时scan应当失败");
+            } catch (UnsatisfiedDependencyException expected) {
+                // 依赖检查失败
+            } finally {
+                System.clearProperty(Broken.ENABLED);
+            }
+            check(context.findBean("broken") == null && context.findBean("companion") == null, "失败的扫描应当整体回滚");
+            check(context.getBean("extension", Extension.class) == extension, "失败的扫描不应当影响已有的bean");
+
+            final List<String> retried = context.scan(BROKEN);
+            check(retried.equals(Collections.singletonList("companion")), "回滚后应当可以重新扫描：" + retried);
+            check(context.findBean(Core.class) == core, "按类型查找仍然得到原来的单例");
+        } finally {
+            context.close();
+        }
+        System.out.println("done");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.bytedance.spring;
+
+import com.bytedance.spring.bean.stereotype.Front;
+import com.bytedance.spring.bean.stereotype.OrderStorage;
+import com.bytedance.spring.context.impl.DefaultApplicationContext;
+
+/**
+ * 检查以@Service、@Repository为元注解的自定义注解与@Component一样注册bean，value属性作为beanName
+ */
+public class StereotypeTest {
+
+    public static void main(String[] args) throws Exception {
+        final DefaultApplicationContext context = new DefaultApplicationContext("com.bytedance.spring.bean.stereotype");
+        try {
+            check(context.findBean("front", Front.class) != null, "以@Service为元注解的注解应当注册bean，value作为beanName");
+            check(context.findBean("orderStorage", OrderStorage.class) != null, "以@Repository为元注解的注解应当注册bean");
+        } finally {
+            context.close();
+        }
+        System.out.println("done");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
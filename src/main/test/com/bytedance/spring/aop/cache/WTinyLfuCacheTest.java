@@ -0,0 +1,75 @@
+package com.bytedance.spring.aop.cache;
+
+/**
+ * 检查W-TinyLFU的准入和淘汰：一次性的新条目不会挤掉频率相同的已有条目，经常访问的条目不会被挤出，
+ * 新条目访问得足够多时可以挤掉不常访问的条目；
+ * 以及FrequencySketch增加的次数达到采样数量后计数减半
+ * 单线程读写时读缓冲区总能在下一次写入时处理完，结果是确定的
+ */
+public class WTinyLfuCacheTest {
+
+    public static void main(String[] args) {
+        checkAdmission();
+        checkSketchAging();
+        System.out.println("done");
+    }
+
+    private static void checkAdmission() {
+        final WTinyLfuCache<Integer, Integer> cache = new WTinyLfuCache<>(100, 0);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                check(cache.get(i) != null, "未超出容量时不应当淘汰");
+            }
+        }
+        // 只写入一次的新条目与主区中同样只写入过一次的条目频率相同，进入主区时被拒绝，不会像LRU一样挤掉已有的条目
+        for (int i = 1000; i < 1100; i++) {
+            cache.put(i, i);
+        }
+        int survived = 0;
+        for (int i = 50; i < 100; i++) {
+            survived += cache.get(i) != null ? 1 : 0;
+        }
+        check(survived >= 40, "频率相同时应当保留已有的条目，实际保留了" + survived + "个");
+
+        // 之后计数衰减，旧条目逐渐被新条目替换，但经常访问的条目始终不会被挤出
+        for (int i = 2000; i < 3000; i++) {
+            cache.put(i, i);
+        }
+        check(cache.size() == 100 && cache.stats().getEvictionCount() == 1100, "超出容量的条目应当被淘汰");
+        for (int i = 0; i < 50; i++) {
+            check(cache.get(i) != null, "经常访问的条目不应当被一次性的条目挤出：" + i);
+        }
+
+        // 新条目在窗口区中被访问多次，进入主区时频率高于最久未访问的条目，被准入
+        cache.put(5000, 5000);
+        for (int i = 0; i < 20; i++) {
+            cache.get(5000);
+        }
+        cache.put(5001, 5001);
+        check(cache.get(5000) != null, "访问频率高的新条目应当被准入");
+        check(cache.size() == 100, "准入新条目时应当淘汰一个旧条目");
+    }
+
+    private static void checkSketchAging() {
+        final FrequencySketch sketch = new FrequencySketch(16);
+        final Object hot = "hot";
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(hot);
+        }
+        check(sketch.frequency(hot) == 15, "计数器最大为15");
+        // 采样数量为容量的10倍，第160次增加时所有计数器减半
+        for (int i = 0; i < 145; i++) {
+            sketch.increment("key" + i);
+        }
+        check(sketch.frequency(hot) == 7, "达到采样数量后计数应当减半，实际是" + sketch.frequency(hot));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.bytedance.spring.bean.async;
+
+import com.bytedance.spring.ioc.annotation.Autowired;
+import com.bytedance.spring.ioc.annotation.Component;
+import com.bytedance.spring.ioc.annotation.Lazy;
+
+@Component
+@Lazy
+public class Assembly {
+    @Autowired
+    private Part part;
+
+    public Part getPart() {
+        return part;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bytedance.spring.bean.async;
+
+import com.bytedance.spring.ioc.annotation.Component;
+import com.bytedance.spring.ioc.annotation.Scope;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Scope("prototype")
+public class Part {
+    public static final AtomicInteger CONSTRUCTIONS = new AtomicInteger();
+
+    public Part() {
+        CONSTRUCTIONS.incrementAndGet();
+    }
+}
@@ -0,0 +1,12 @@
+package com.bytedance.spring.bean.cache;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface Catalog {
+
+    String upper(String name);
+
+    String lower(String name);
+
+    CompletableFuture<String> load(String name);
+}
@@ -0,0 +1,38 @@
+package com.bytedance.spring.bean.cache;
+
+import com.bytedance.spring.aop.annotation.Async;
+import com.bytedance.spring.aop.annotation.Cacheable;
+import com.bytedance.spring.ioc.annotation.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * upper和lower共享同一个缓存，load第一次调用失败
+ */
+@Component
+public class DefaultCatalog implements Catalog {
+    public static final AtomicInteger LOADS = new AtomicInteger();
+
+    @Override
+    @Cacheable(name = "catalog")
+    public String upper(String name) {
+        return name.toUpperCase();
+    }
+
+    @Override
+    @Cacheable(name = "catalog")
+    public String lower(String name) {
+        return name.toLowerCase();
+    }
+
+    @Override
+    @Cacheable
+    @Async
+    public CompletableFuture<String> load(String name) {
+        if (LOADS.incrementAndGet() == 1) {
+            throw new IllegalStateException("第一次加载失败");
+        }
+        return CompletableFuture.completedFuture(name);
+    }
+}
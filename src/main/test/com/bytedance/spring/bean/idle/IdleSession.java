@@ -0,0 +1,38 @@
+package com.bytedance.spring.bean.idle;
+
+import com.bytedance.spring.ioc.annotation.Component;
+import com.bytedance.spring.ioc.annotation.ExpireAfterIdle;
+import com.bytedance.spring.ioc.annotation.PreDestroy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 空闲100ms后释放，记录创建和销毁的次数，number是第几个被创建的对象
+ */
+@Component
+@ExpireAfterIdle(100)
+public class IdleSession implements Session {
+    public static final AtomicInteger CREATED = new AtomicInteger();
+
+    public static final AtomicInteger DESTROYED = new AtomicInteger();
+
+    private final int number = CREATED.incrementAndGet();
+
+    @Override
+    public int number() {
+        return number;
+    }
+
+    @Override
+    public int hold(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+        entered.countDown();
+        release.await();
+        return number;
+    }
+
+    @PreDestroy
+    public void close() {
+        DESTROYED.incrementAndGet();
+    }
+}
@@ -0,0 +1,13 @@
+package com.bytedance.spring.bean.idle;
+
+import java.util.concurrent.CountDownLatch;
+
+public interface Session {
+
+    int number();
+
+    /**
+     * 通知entered后等待release，模拟一次进行中的调用
+     */
+    int hold(CountDownLatch entered, CountDownLatch release) throws InterruptedException;
+}
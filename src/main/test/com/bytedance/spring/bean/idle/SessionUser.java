@@ -0,0 +1,17 @@
+package com.bytedance.spring.bean.idle;
+
+import com.bytedance.spring.ioc.annotation.Autowired;
+import com.bytedance.spring.ioc.annotation.Component;
+
+/**
+ * 注入的是作用域代理，每次调用都从容器获取当前的IdleSession
+ */
+@Component
+public class SessionUser {
+    @Autowired
+    private Session session;
+
+    public Session getSession() {
+        return session;
+    }
+}
@@ -0,0 +1,8 @@
+package com.bytedance.spring.bean.metrics;
+
+public interface Greeter {
+
+    String hello(String name);
+
+    String bye(String name);
+}
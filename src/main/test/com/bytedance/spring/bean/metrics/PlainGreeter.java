@@ -0,0 +1,22 @@
+package com.bytedance.spring.bean.metrics;
+
+import com.bytedance.spring.aop.annotation.Timed;
+import com.bytedance.spring.ioc.annotation.Component;
+
+/**
+ * 只有方法上有@Timed，没有指定名称
+ */
+@Component
+public class PlainGreeter implements Greeter {
+
+    @Override
+    @Timed
+    public String hello(String name) {
+        return "hi " + name;
+    }
+
+    @Override
+    public String bye(String name) {
+        return "see you " + name;
+    }
+}
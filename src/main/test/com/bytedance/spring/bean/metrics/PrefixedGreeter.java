@@ -0,0 +1,23 @@
+package com.bytedance.spring.bean.metrics;
+
+import com.bytedance.spring.aop.annotation.Timed;
+import com.bytedance.spring.ioc.annotation.Component;
+
+/**
+ * 类上的@Timed是前缀，方法上的@Timed指定完整的名称
+ */
+@Component
+@Timed("api")
+public class PrefixedGreeter implements Greeter {
+
+    @Override
+    public String hello(String name) {
+        return "hello " + name;
+    }
+
+    @Override
+    @Timed("greeter.bye")
+    public String bye(String name) {
+        return "bye " + name;
+    }
+}
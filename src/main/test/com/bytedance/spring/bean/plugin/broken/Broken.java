@@ -0,0 +1,17 @@
+package com.bytedance.spring.bean.plugin.broken;
+
+import com.bytedance.spring.ioc.annotation.Autowired;
+import com.bytedance.spring.ioc.annotation.Component;
+import com.bytedance.spring.ioc.annotation.ConditionalOnProperty;
+
+/**
+ * 依赖缺失，只在设置了配置项时注册，使扫描整个包的其它测试不受影响
+ */
+@Component
+@ConditionalOnProperty(name = Broken.ENABLED)
+public class Broken {
+    public static final String ENABLED = "summer.test.plugin.broken";
+
+    @Autowired
+    private Missing missing;
+}
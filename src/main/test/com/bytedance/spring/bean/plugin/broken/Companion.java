@@ -0,0 +1,10 @@
+package com.bytedance.spring.bean.plugin.broken;
+
+import com.bytedance.spring.ioc.annotation.Component;
+
+/**
+ * 与Broken在同一次扫描中注册，Broken校验失败时它也不应当被注册
+ */
+@Component
+public class Companion {
+}
@@ -0,0 +1,7 @@
+package com.bytedance.spring.bean.plugin.broken;
+
+/**
+ * 没有实现类，依赖它的bean无法注入
+ */
+public interface Missing {
+}
@@ -0,0 +1,7 @@
+package com.bytedance.spring.bean.plugin.core;
+
+import com.bytedance.spring.ioc.annotation.Component;
+
+@Component
+public class Core {
+}
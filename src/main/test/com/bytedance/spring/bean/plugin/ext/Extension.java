@@ -0,0 +1,18 @@
+package com.bytedance.spring.bean.plugin.ext;
+
+import com.bytedance.spring.bean.plugin.core.Core;
+import com.bytedance.spring.ioc.annotation.Autowired;
+import com.bytedance.spring.ioc.annotation.Component;
+
+/**
+ * 容器启动后通过scan注册，依赖启动时已有的Core
+ */
+@Component
+public class Extension {
+    @Autowired
+    private Core core;
+
+    public Core getCore() {
+        return core;
+    }
+}
@@ -0,0 +1,23 @@
+package com.bytedance.spring.bean.slow;
+
+import com.bytedance.spring.ioc.annotation.Component;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * 设置了release时，创建它的容器在启动过程中停下，直到release被打开，用来让多个线程同时等待同一个容器启动
+ */
+@Component
+public class Gate {
+    public static final CountDownLatch ENTERED = new CountDownLatch(1);
+
+    public static volatile CountDownLatch release;
+
+    public Gate() throws InterruptedException {
+        final CountDownLatch latch = release;
+        if (latch != null) {
+            ENTERED.countDown();
+            latch.await();
+        }
+    }
+}
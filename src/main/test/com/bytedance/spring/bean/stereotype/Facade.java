@@ -0,0 +1,18 @@
+package com.bytedance.spring.bean.stereotype;
+
+import com.bytedance.spring.ioc.annotation.Service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 以@Service为元注解的自定义组件注解
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Service
+public @interface Facade {
+    String value() default "";
+}
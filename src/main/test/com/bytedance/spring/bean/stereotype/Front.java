@@ -0,0 +1,5 @@
+package com.bytedance.spring.bean.stereotype;
+
+@Facade("front")
+public class Front {
+}
@@ -0,0 +1,5 @@
+package com.bytedance.spring.bean.stereotype;
+
+@Storage
+public class OrderStorage {
+}
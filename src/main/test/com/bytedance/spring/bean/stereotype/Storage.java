@@ -0,0 +1,17 @@
+package com.bytedance.spring.bean.stereotype;
+
+import com.bytedance.spring.ioc.annotation.Repository;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 以@Repository为元注解的自定义组件注解，没有value属性
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repository
+public @interface Storage {
+}
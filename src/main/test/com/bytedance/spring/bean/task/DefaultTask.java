@@ -0,0 +1,31 @@
+package com.bytedance.spring.bean.task;
+
+import com.bytedance.spring.aop.annotation.Async;
+import com.bytedance.spring.ioc.annotation.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+@Component
+public class DefaultTask implements Task {
+
+    /**
+     * 返回的不是CompletableFuture，拦截器通过Future.get()等待结果
+     */
+    @Override
+    @Async
+    public Future<String> fail() {
+        final FutureTask<String> task = new FutureTask<>(() -> {
+            throw new IllegalArgumentException("执行失败");
+        });
+        task.run();
+        return task;
+    }
+
+    @Override
+    @Async
+    public CompletableFuture<Thread> currentThread() {
+        return CompletableFuture.completedFuture(Thread.currentThread());
+    }
+}
@@ -0,0 +1,11 @@
+package com.bytedance.spring.bean.task;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+public interface Task {
+
+    Future<String> fail();
+
+    CompletableFuture<Thread> currentThread();
+}